@@ -0,0 +1,241 @@
+package com.hideyourfire.trophicherds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Herd membership kept between updates as a union-find over positions: only values that
+// moved past the threshold, appeared or disappeared are re-linked on each refresh.
+final class HerdGraph<V> {
+  private final double distanceSq;
+  private final HerdSpatialHash grid;
+  private final Function<V, ?> keyOf;
+  private final Map<Object, Integer> slotById = new HashMap<>();
+  private final HerdSpatialHash.IntBucket freeSlots = new HerdSpatialHash.IntBucket();
+  private Object[] ids = new Object[0];
+  private int[] currentIndex = new int[0];
+  private double[] xs = new double[0];
+  private double[] ys = new double[0];
+  private double[] zs = new double[0];
+  private int[] parent = new int[0];
+  private int[] next = new int[0];
+  private int[] componentSize = new int[0];
+  private int[] seenGeneration = new int[0];
+  private boolean[] live = new boolean[0];
+  private boolean[] queued = new boolean[0];
+  private int slotCount;
+  private int generation;
+  private int refreshesSinceRebuild;
+
+  // keyOf identifies a value across refreshes, so a re-wrapped entity keeps its slot.
+  HerdGraph(double awarenessDistance, Function<V, ?> keyOf) {
+    this.distanceSq = awarenessDistance * awarenessDistance;
+    this.grid = new HerdSpatialHash(awarenessDistance);
+    this.keyOf = keyOf;
+  }
+
+  // Returns the groups of values chained together by gaps of at most the awareness
+  // distance, given the current positions of the first size values. Each group holds
+  // indexes into current, so callers can read their own per-value arrays directly.
+  List<int[]> refresh(
+      List<V> current,
+      double[] currentXs,
+      double[] currentYs,
+      double[] currentZs,
+      int size,
+      double moveThresholdSq,
+      int fullRebuildInterval) {
+    generation++;
+    boolean fullRebuild = ++refreshesSinceRebuild >= fullRebuildInterval;
+    if (fullRebuild) {
+      refreshesSinceRebuild = 0;
+    }
+    HerdSpatialHash.IntBucket changed = new HerdSpatialHash.IntBucket();
+    HerdSpatialHash.IntBucket added = new HerdSpatialHash.IntBucket();
+    for (int i = 0; i < size; i++) {
+      V value = current.get(i);
+      double x = currentXs[i];
+      double y = currentYs[i];
+      double z = currentZs[i];
+      Integer existing = slotById.get(keyOf.apply(value));
+      if (existing == null) {
+        added.add(allocate(value, i, x, y, z));
+        continue;
+      }
+      int slot = existing;
+      currentIndex[slot] = i;
+      seenGeneration[slot] = generation;
+      double dx = x - xs[slot];
+      double dy = y - ys[slot];
+      double dz = z - zs[slot];
+      if (fullRebuild || dx * dx + dy * dy + dz * dz > moveThresholdSq) {
+        grid.move(slot, xs[slot], zs[slot], x, z);
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        changed.add(slot);
+      }
+    }
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (live[slot] && seenGeneration[slot] != generation) {
+        changed.add(slot);
+      }
+    }
+
+    // A moved or departed mob may have been the only link holding its herd
+    // together, so its whole component is split back into singletons and
+    // re-linked below. Untouched components keep their unions as-is.
+    HerdSpatialHash.IntBucket recheck = new HerdSpatialHash.IntBucket();
+    for (int n = 0; n < changed.size; n++) {
+      splitComponent(changed.items[n], recheck);
+    }
+    for (int n = 0; n < changed.size; n++) {
+      int slot = changed.items[n];
+      if (seenGeneration[slot] != generation) {
+        release(slot);
+      }
+    }
+    for (int n = 0; n < added.size; n++) {
+      int slot = added.items[n];
+      queued[slot] = true;
+      recheck.add(slot);
+    }
+    HerdSpatialHash.IntBucket neighbours = new HerdSpatialHash.IntBucket();
+    for (int n = 0; n < recheck.size; n++) {
+      int slot = recheck.items[n];
+      queued[slot] = false;
+      if (!live[slot]) {
+        continue;
+      }
+      neighbours.clear();
+      grid.collectWithin(
+          xs[slot],
+          ys[slot],
+          zs[slot],
+          distanceSq,
+          xs,
+          ys,
+          zs,
+          null,
+          neighbours);
+      for (int k = 0; k < neighbours.size; k++) {
+        union(slot, neighbours.items[k]);
+      }
+    }
+    return collectClusters();
+  }
+
+  private int allocate(V value, int index, double x, double y, double z) {
+    int slot;
+    if (freeSlots.size > 0) {
+      slot = freeSlots.items[--freeSlots.size];
+    } else {
+      if (slotCount == ids.length) {
+        grow(Math.max(64, slotCount * 2));
+      }
+      slot = slotCount++;
+    }
+    Object id = keyOf.apply(value);
+    ids[slot] = id;
+    currentIndex[slot] = index;
+    xs[slot] = x;
+    ys[slot] = y;
+    zs[slot] = z;
+    parent[slot] = slot;
+    next[slot] = slot;
+    componentSize[slot] = 1;
+    seenGeneration[slot] = generation;
+    live[slot] = true;
+    slotById.put(id, slot);
+    grid.insert(slot, x, z);
+    return slot;
+  }
+
+  private void release(int slot) {
+    grid.remove(slot, xs[slot], zs[slot]);
+    slotById.remove(ids[slot]);
+    ids[slot] = null;
+    live[slot] = false;
+    freeSlots.add(slot);
+  }
+
+  private void grow(int capacity) {
+    ids = Arrays.copyOf(ids, capacity);
+    currentIndex = Arrays.copyOf(currentIndex, capacity);
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+    zs = Arrays.copyOf(zs, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    next = Arrays.copyOf(next, capacity);
+    componentSize = Arrays.copyOf(componentSize, capacity);
+    seenGeneration = Arrays.copyOf(seenGeneration, capacity);
+    live = Arrays.copyOf(live, capacity);
+    queued = Arrays.copyOf(queued, capacity);
+  }
+
+  private void splitComponent(int slot, HerdSpatialHash.IntBucket recheck) {
+    if (queued[slot]) {
+      return;
+    }
+    int start = recheck.size;
+    int member = slot;
+    do {
+      queued[member] = true;
+      recheck.add(member);
+      member = next[member];
+    } while (member != slot);
+    for (int n = start; n < recheck.size; n++) {
+      int reset = recheck.items[n];
+      parent[reset] = reset;
+      next[reset] = reset;
+      componentSize[reset] = 1;
+    }
+  }
+
+  private int find(int slot) {
+    while (parent[slot] != slot) {
+      parent[slot] = parent[parent[slot]];
+      slot = parent[slot];
+    }
+    return slot;
+  }
+
+  private void union(int a, int b) {
+    int rootA = find(a);
+    int rootB = find(b);
+    if (rootA == rootB) {
+      return;
+    }
+    if (componentSize[rootA] < componentSize[rootB]) {
+      int swap = rootA;
+      rootA = rootB;
+      rootB = swap;
+    }
+    parent[rootB] = rootA;
+    componentSize[rootA] += componentSize[rootB];
+    int spliced = next[rootA];
+    next[rootA] = next[rootB];
+    next[rootB] = spliced;
+  }
+
+  private List<int[]> collectClusters() {
+    List<int[]> clusters = new ArrayList<>();
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (!live[slot] || find(slot) != slot) {
+        continue;
+      }
+      int[] members = new int[componentSize[slot]];
+      int count = 0;
+      int member = slot;
+      do {
+        members[count++] = currentIndex[member];
+        member = next[member];
+      } while (member != slot);
+      clusters.add(members);
+    }
+    return clusters;
+  }
+}
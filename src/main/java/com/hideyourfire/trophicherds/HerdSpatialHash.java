@@ -0,0 +1,107 @@
+package com.hideyourfire.trophicherds;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Uniform XZ grid whose cells are as wide as the awareness distance, so every mob within
+// reach of a point lies in the 3x3 cells around it.
+final class HerdSpatialHash {
+  private final double cellSize;
+  private final Map<Long, IntBucket> cells = new HashMap<>();
+
+  HerdSpatialHash(double awarenessDistance) {
+    this.cellSize = Math.max(1.0, awarenessDistance);
+  }
+
+  void insert(int index, double x, double z) {
+    long key = cellKey(cellOf(x), cellOf(z));
+    cells.computeIfAbsent(key, ignored -> new IntBucket()).add(index);
+  }
+
+  void remove(int index, double x, double z) {
+    long key = cellKey(cellOf(x), cellOf(z));
+    IntBucket bucket = cells.get(key);
+    if (bucket == null) {
+      return;
+    }
+    bucket.remove(index);
+    if (bucket.size == 0) {
+      cells.remove(key);
+    }
+  }
+
+  void move(int index, double fromX, double fromZ, double toX, double toZ) {
+    if (cellOf(fromX) == cellOf(toX) && cellOf(fromZ) == cellOf(toZ)) {
+      return;
+    }
+    remove(index, fromX, fromZ);
+    insert(index, toX, toZ);
+  }
+
+  void collectWithin(
+      double x,
+      double y,
+      double z,
+      double distanceSq,
+      double[] xs,
+      double[] ys,
+      double[] zs,
+      boolean[] excluded,
+      IntBucket out) {
+    int cellX = cellOf(x);
+    int cellZ = cellOf(z);
+    for (int dx = -1; dx <= 1; dx++) {
+      for (int dz = -1; dz <= 1; dz++) {
+        IntBucket bucket = cells.get(cellKey(cellX + dx, cellZ + dz));
+        if (bucket == null) {
+          continue;
+        }
+        for (int n = 0; n < bucket.size; n++) {
+          int j = bucket.items[n];
+          if (excluded != null && excluded[j]) {
+            continue;
+          }
+          double ox = xs[j] - x;
+          double oy = ys[j] - y;
+          double oz = zs[j] - z;
+          if (ox * ox + oy * oy + oz * oz <= distanceSq) {
+            out.add(j);
+          }
+        }
+      }
+    }
+  }
+
+  private int cellOf(double coordinate) {
+    return (int) Math.floor(coordinate / cellSize);
+  }
+
+  private static long cellKey(int cellX, int cellZ) {
+    return (((long) cellX) << 32) ^ (cellZ & 0xffffffffL);
+  }
+
+  static final class IntBucket {
+    int[] items = new int[8];
+    int size;
+
+    void add(int value) {
+      if (size == items.length) {
+        items = java.util.Arrays.copyOf(items, size * 2);
+      }
+      items[size++] = value;
+    }
+
+    void remove(int value) {
+      for (int n = 0; n < size; n++) {
+        if (items[n] == value) {
+          items[n] = items[--size];
+          return;
+        }
+      }
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+}
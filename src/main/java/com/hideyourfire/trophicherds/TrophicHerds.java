@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -16,9 +17,14 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.SoundCategory;
+import org.bukkit.Tag;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
 import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.GameMode;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -40,15 +46,39 @@ import org.bukkit.entity.Sheep;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityBreedEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.EntityTargetLivingEntityEvent;
-import org.bukkit.event.player.PlayerToggleSprintEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitTask;
-import org.bukkit.util.Vector;
+import com.destroystokyo.paper.entity.Pathfinder;
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
 import com.destroystokyo.paper.event.entity.EntityPathfindEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
 
 public final class TrophicHerds extends JavaPlugin {
   private static final String CULL_METADATA_KEY = "trophicherds_cull";
@@ -67,8 +97,16 @@ public final class TrophicHerds extends JavaPlugin {
   private boolean debugEnabled;
   private BukkitTask herdTask;
   private BukkitTask hazardTask;
+  private java.util.concurrent.ExecutorService herdWorker;
+  private java.util.concurrent.ExecutorService hazardWorker;
   private final HerdManager herdManager = new HerdManager();
+  private final HerdAnimalRegistry herdRegistry = new HerdAnimalRegistry();
+  private final BiomeCache biomeCache = new BiomeCache();
+  private final ThreatField threatField = new ThreatField();
+  private final HerdScheduler herdScheduler = new HerdScheduler();
+  private final HerdMovement herdMovement = new HerdMovement();
   private final HazardManager hazardManager = new HazardManager();
+  private final HazardAtlas hazardAtlas = new HazardAtlas();
   private static final double HERDCOUNT_RADIUS = 128.0;
   private static final int HERDCOUNT_MIN_POPULATION = 2;
 
@@ -77,7 +115,24 @@ public final class TrophicHerds extends JavaPlugin {
     saveDefaultConfig();
     this.settings = Settings.fromConfig(getConfig());
     this.debugEnabled = false;
+    this.herdWorker = java.util.concurrent.Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "TrophicHerds-HerdPlanner");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.hazardWorker = java.util.concurrent.Executors.newFixedThreadPool(
+        HazardManager.BUILD_THREADS,
+        runnable -> {
+          Thread thread = new Thread(runnable, "TrophicHerds-HazardBuilder");
+          thread.setDaemon(true);
+          return thread;
+        });
     getServer().getPluginManager().registerEvents(new PredatorListener(), this);
+    getServer().getPluginManager().registerEvents(new HerdRegistryListener(), this);
+    getServer().getPluginManager().registerEvents(new HazardListener(), this);
+    herdRegistry.seedLoadedWorlds();
+    threatField.seedLoadedWorlds();
+    hazardManager.seedLoadedWorlds();
     scheduleHerdManagement();
     scheduleHazardCacheMaintenance();
   }
@@ -92,12 +147,26 @@ public final class TrophicHerds extends JavaPlugin {
       hazardTask.cancel();
       hazardTask = null;
     }
+    if (herdWorker != null) {
+      herdWorker.shutdownNow();
+      herdWorker = null;
+    }
+    if (hazardWorker != null) {
+      hazardWorker.shutdownNow();
+      hazardWorker = null;
+    }
+    hazardAtlas.closeAll();
   }
 
   private void scheduleHerdManagement() {
     herdTask = Bukkit.getScheduler().runTaskTimer(
         this,
-        this::tickHerds,
+        () -> {
+          threatField.sweep();
+          herdManager.drainImmediateFlees(Bukkit.getCurrentTick());
+          hazardManager.prefetch(Bukkit.getCurrentTick());
+          herdScheduler.tick();
+        },
         1L,
         1L);
   }
@@ -110,29 +179,21 @@ public final class TrophicHerds extends JavaPlugin {
         200L);
   }
 
-  private void tickHerds() {
-    int currentTick = Bukkit.getCurrentTick();
-    for (World world : Bukkit.getWorlds()) {
-      for (MobTypeConfig<? extends Mob> config : settings.mobConfigs.values()) {
-        if (config.settings.herdUpdateIntervalTicks > 0) {
-          herdManager.updateHerdsIfDue(world, config, currentTick, this::logCullingEvent);
-        }
-      }
-    }
-  }
-
   @Override
   public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
     if (!command.getName().equalsIgnoreCase("th")) {
       return false;
     }
     if (args.length == 0) {
-      sender.sendMessage("Usage: /th <herdcount|debug>");
+      sender.sendMessage("Usage: /th <herdcount|debug|scheduler>");
       return true;
     }
     if (args[0].equalsIgnoreCase("debug")) {
       return handleDebugCommand(sender, args);
     }
+    if (args[0].equalsIgnoreCase("scheduler")) {
+      return handleSchedulerCommand(sender);
+    }
     if (!args[0].equalsIgnoreCase("herdcount")) {
       sender.sendMessage("Usage: /th herdcount");
       return true;
@@ -150,18 +211,13 @@ public final class TrophicHerds extends JavaPlugin {
     Location targetLocation = targetBlock != null
         ? targetBlock.getLocation()
         : player.getLocation();
-    Biome targetBiome = targetLocation.getBlock().getBiome();
+    Biome targetBiome = biomeCache.biomeAt(
+        targetLocation.getWorld(),
+        targetLocation.getBlockX(),
+        targetLocation.getBlockY(),
+        targetLocation.getBlockZ());
 
-    int currentTick = Bukkit.getCurrentTick();
-    for (MobTypeConfig<? extends Mob> config : settings.mobConfigs.values()) {
-      if (config.settings.herdUpdateIntervalTicks > 0) {
-        herdManager.updateHerdsIfDue(
-            player.getWorld(),
-            config,
-            currentTick,
-            this::logCullingEvent);
-      }
-    }
+    herdScheduler.runWorldNow(player.getWorld());
 
     List<HerdSnapshot> snapshots = herdManager.getHerdSnapshots(
         player.getWorld(),
@@ -209,6 +265,38 @@ public final class TrophicHerds extends JavaPlugin {
     return true;
   }
 
+  private boolean handleSchedulerCommand(CommandSender sender) {
+    if (sender instanceof Player player && !player.hasPermission("trophicherds.admin")) {
+      sender.sendMessage("You do not have permission to use this command.");
+      return true;
+    }
+    int currentTick = Bukkit.getCurrentTick();
+    sender.sendMessage(String.format(
+        "Herd scheduler: %d passes pending (%d herd units), oldest is %d ticks behind.",
+        herdScheduler.pendingPasses(),
+        herdScheduler.pendingUnits(),
+        herdScheduler.oldestLagTicks(currentTick)));
+    sender.sendMessage(String.format(
+        "Last herd ran %d ticks after its phase slot; %d passes completed, budget %d ns/tick.",
+        herdScheduler.lastUnitLagTicks,
+        herdScheduler.completedPasses,
+        settings.herdTickBudgetNanos));
+    sender.sendMessage(String.format(
+        "Herd movement: %d paths requested, %d skipped as already underway or superseded.",
+        herdMovement.requestedPaths,
+        herdMovement.savedPaths));
+    sender.sendMessage(String.format(
+        "Hazard cache: %d regions, %d misses answered provisionally, %d urgent builds queued.",
+        hazardManager.cache.size(),
+        hazardManager.provisionalScores,
+        hazardManager.urgentQueue.size()));
+    sender.sendMessage(String.format(
+        "Hazard edits: %d cells rebuilt from block changes, %d regions waiting.",
+        hazardManager.dirtyCellsRebuilt,
+        hazardManager.dirtyCells.size()));
+    return true;
+  }
+
   private void logCullingEvent(String message) {
     if (!debugEnabled) {
       return;
@@ -240,40 +328,89 @@ public final class TrophicHerds extends JavaPlugin {
 
   private static final class Settings {
     private final EnumMap<EntityType, MobTypeConfig<? extends Mob>> mobConfigs;
-    private final EnumMap<EntityType, List<MobTypeConfig<? extends Mob>>> predatorToPrey;
+    private final MobTypeConfig<?>[][] preyByPredator;
+    private final EnumMap<EntityType, Integer> predatorBits;
+    private final long herdTickBudgetNanos;
+    private final int immediateFleeCooldownTicks;
+    private final boolean hazardBlockingMisses;
 
     private Settings(
         EnumMap<EntityType, MobTypeConfig<? extends Mob>> mobConfigs,
-        EnumMap<EntityType, List<MobTypeConfig<? extends Mob>>> predatorToPrey) {
+        MobTypeConfig<?>[][] preyByPredator,
+        EnumMap<EntityType, Integer> predatorBits,
+        long herdTickBudgetNanos,
+        int immediateFleeCooldownTicks,
+        boolean hazardBlockingMisses) {
       this.mobConfigs = mobConfigs;
-      this.predatorToPrey = predatorToPrey;
+      this.preyByPredator = preyByPredator;
+      this.predatorBits = predatorBits;
+      this.herdTickBudgetNanos = herdTickBudgetNanos;
+      this.immediateFleeCooldownTicks = immediateFleeCooldownTicks;
+      this.hazardBlockingMisses = hazardBlockingMisses;
+    }
+
+    private MobTypeConfig<? extends Mob> preyConfig(EntityType predator, EntityType prey) {
+      MobTypeConfig<?>[] row = preyByPredator[predator.ordinal()];
+      return row == null ? null : row[prey.ordinal()];
     }
 
     private static Settings fromConfig(FileConfiguration config) {
-      EnumMap<EntityType, MobTypeConfig<? extends Mob>> mobConfigs =
-          new EnumMap<>(EntityType.class);
+      EnumMap<EntityType, MobSettings> parsed = new EnumMap<>(EntityType.class);
+      EnumMap<EntityType, Integer> predatorBits = new EnumMap<>(EntityType.class);
       for (MobKind<? extends Mob> kind : SUPPORTED_MOBS) {
         String basePath = "mobs." + kind.configKey;
         if (!config.isConfigurationSection(basePath)) {
           continue;
         }
         MobSettings mobSettings = MobSettings.fromConfig(config, basePath);
+        parsed.put(kind.entityType, mobSettings);
+        for (EntityType predator : mobSettings.predators) {
+          predatorBits.putIfAbsent(predator, predatorBits.size() & 63);
+        }
+      }
+      EnumMap<EntityType, MobTypeConfig<? extends Mob>> mobConfigs =
+          new EnumMap<>(EntityType.class);
+      for (MobKind<? extends Mob> kind : SUPPORTED_MOBS) {
+        MobSettings mobSettings = parsed.get(kind.entityType);
+        if (mobSettings == null) {
+          continue;
+        }
+        long predatorMask = 0L;
+        for (EntityType predator : mobSettings.predators) {
+          predatorMask |= 1L << predatorBits.get(predator);
+        }
         mobConfigs.put(
             kind.entityType,
-            new MobTypeConfig<>(kind.entityType, kind.entityClass, mobSettings));
-      }
-      EnumMap<EntityType, List<MobTypeConfig<? extends Mob>>> predatorToPrey =
-          buildPredatorIndex(mobConfigs);
-      return new Settings(mobConfigs, predatorToPrey);
+            new MobTypeConfig<>(kind.entityType, kind.entityClass, mobSettings, predatorMask));
+      }
+      MobTypeConfig<?>[][] preyByPredator = buildPredatorIndex(mobConfigs);
+      long herdTickBudgetNanos =
+          Math.max(0L, config.getLong("performance.herd-tick-budget-nanos", 2_000_000L));
+      int immediateFleeCooldownTicks =
+          Math.max(0, config.getInt("performance.immediate-flee-cooldown-ticks", 10));
+      boolean hazardBlockingMisses =
+          config.getBoolean("performance.hazard-blocking-misses", false);
+      return new Settings(
+          mobConfigs,
+          preyByPredator,
+          predatorBits,
+          herdTickBudgetNanos,
+          immediateFleeCooldownTicks,
+          hazardBlockingMisses);
     }
 
-    private static EnumMap<EntityType, List<MobTypeConfig<? extends Mob>>> buildPredatorIndex(
+    private static MobTypeConfig<?>[][] buildPredatorIndex(
         EnumMap<EntityType, MobTypeConfig<? extends Mob>> mobConfigs) {
-      EnumMap<EntityType, List<MobTypeConfig<? extends Mob>>> index =
-          new EnumMap<>(EntityType.class);
+      int types = EntityType.values().length;
+      MobTypeConfig<?>[][] index = new MobTypeConfig<?>[types][];
       for (MobTypeConfig<? extends Mob> config : mobConfigs.values()) {
         for (EntityType predator : config.settings.predators) {
-          index.computeIfAbsent(predator, ignored -> new ArrayList<>()).add(config);
+          MobTypeConfig<?>[] prey = index[predator.ordinal()];
+          if (prey == null) {
+            prey = new MobTypeConfig<?>[types];
+            index[predator.ordinal()] = prey;
+          }
+          prey[config.entityType.ordinal()] = config;
         }
       }
       return index;
@@ -529,14 +666,17 @@ public final class TrophicHerds extends JavaPlugin {
     private final EntityType entityType;
     private final Class<T> entityClass;
     private final MobSettings settings;
+    private final long predatorMask;
 
     private MobTypeConfig(
         EntityType entityType,
         Class<T> entityClass,
-        MobSettings settings) {
+        MobSettings settings,
+        long predatorMask) {
       this.entityType = entityType;
       this.entityClass = entityClass;
       this.settings = settings;
+      this.predatorMask = predatorMask;
     }
   }
 
@@ -565,16 +705,21 @@ public final class TrophicHerds extends JavaPlugin {
     private static final long GRAZE_WINDOW_START = 6000L;
     private static final long GRAZE_WINDOW_END = 9000L;
     private static final double AWARENESS_SPEED_MULTIPLIER = 0.6;
-    private static final int PREDATOR_CHUNK_CACHE_TICKS = 2;
+    private static final double FLEE_LANE_WIDTH_MULTIPLIER = 0.5;
+    private static final double[] FLEE_DISTANCE_FACTORS = {1.0, 0.65, 0.4};
+    private static final double[] FLEE_ANGLE_COS = {
+        1.0, Math.cos(0.35), Math.cos(-0.35), Math.cos(0.7), Math.cos(-0.7)};
+    private static final double[] FLEE_ANGLE_SIN = {
+        0.0, Math.sin(0.35), Math.sin(-0.35), Math.sin(0.7), Math.sin(-0.7)};
     private static final int PREDATOR_THREAT_TTL_TICKS = 3;
-    private static final int PREDATOR_CHECK_INTERVAL_TICKS = 2;
-    private static final int PREDATOR_CACHE_MAX_ENTRIES = 2048;
     private static final double DAY_LEADER_WANDER_CHANCE = 0.04;
     private static final double DAY_LEADER_WANDER_RADIUS_MULTIPLIER = 1.1;
     private static final double DAY_MEMBER_WANDER_CHANCE = 0.18;
     private static final double DAY_MEMBER_WANDER_RADIUS_MULTIPLIER = 1.6;
     private static final int DAY_MEMBER_WANDER_GRACE_TICKS = 120;
     private static final double WATER_ESCAPE_SPEED_MULTIPLIER = 1.35;
+    private static final double HERD_GRAPH_MOVE_THRESHOLD = 2.0;
+    private static final int HERD_GRAPH_FULL_REBUILD_UPDATES = 30;
     private static final java.util.EnumSet<Material> NATURAL_BREEDING_BLOCKS =
         java.util.EnumSet.of(
             Material.GRASS_BLOCK,
@@ -585,184 +730,353 @@ public final class TrophicHerds extends JavaPlugin {
             Material.ROOTED_DIRT,
             Material.MOSS_BLOCK,
             Material.DIRT_PATH);
-    private final Map<PredatorChunkKey, PredatorChunkCache> predatorChunkCache = new HashMap<>();
-
-    private void updateHerdsIfDue(
+    private final Map<UUID, PendingFlee> pendingFlees = new LinkedHashMap<>();
+    private final List<Mob> fleeing = new ArrayList<>();
+    private final Location steeringLocation = new Location(null, 0.0, 0.0, 0.0);
+    private final Location memberLocation = new Location(null, 0.0, 0.0, 0.0);
+    private final SteeringPoint steeringPoint = new SteeringPoint();
+    private double[] fleeXs = new double[16];
+    private double[] fleeYs = new double[16];
+    private double[] fleeZs = new double[16];
+
+    private List<HerdUpdatePass> createDuePasses(
         World world,
-        MobTypeConfig<? extends Mob> config,
         int currentTick,
         DebugSink debugSink) {
-      HerdCache cache = getCache(world, config.entityType);
-      if (currentTick - cache.lastUpdateTick < config.settings.herdUpdateIntervalTicks) {
-        return;
+      List<MobTypeConfig<? extends Mob>> due = new ArrayList<>();
+      for (MobTypeConfig<? extends Mob> config : settings.mobConfigs.values()) {
+        if (config.settings.herdUpdateIntervalTicks <= 0) {
+          continue;
+        }
+        HerdCache cache = getCache(world, config.entityType);
+        if (cache.activePass != null
+            || currentTick - cache.lastUpdateTick < config.settings.herdUpdateIntervalTicks) {
+          continue;
+        }
+        due.add(config);
       }
-      List<Mob> mobs = new ArrayList<>(world.getEntitiesByClass(config.entityClass));
-      List<HerdCluster> clusters = buildClusters(mobs, config.settings.awarenessDistance);
-      Map<Biome, Integer> biomeCounts = countByBiome(mobs);
-      Map<Long, Integer> chunkCounts = countByChunk(mobs);
-
-      Map<UUID, UUID> newMemberToLeader = new HashMap<>();
-      Map<UUID, Integer> newLeaderFollowerCounts = new HashMap<>();
-      List<HerdSnapshot> newSnapshots = new ArrayList<>();
+      if (due.isEmpty()) {
+        return List.of();
+      }
+      EnumMap<EntityType, SpeciesScan> buckets = new EnumMap<>(EntityType.class);
+      for (MobTypeConfig<? extends Mob> config : due) {
+        MobSettings mobSettings = config.settings;
+        SpeciesScan bucket = getCache(world, config.entityType).scan;
+        bucket.reset(
+            mobSettings.softCapPerBiome > 0 || mobSettings.minBiomePopulation > 0,
+            mobSettings.softCapPerChunk > 0);
+        buckets.put(config.entityType, bucket);
+      }
+      herdRegistry.scan(world, buckets);
+      List<HerdUpdatePass> passes = new ArrayList<>(due.size());
+      for (MobTypeConfig<? extends Mob> config : due) {
+        HerdCache cache = getCache(world, config.entityType);
+        HerdUpdatePass pass = new HerdUpdatePass(
+            world,
+            config,
+            cache,
+            cache.scan,
+            currentTick,
+            debugSink);
+        cache.activePass = pass;
+        cache.lastUpdateTick = currentTick;
+        passes.add(pass);
+      }
+      return passes;
+    }
 
-      boolean day = isDay(world);
+    private void preparePass(HerdUpdatePass pass) {
+      MobTypeConfig<? extends Mob> config = pass.config;
+      pass.day = isDay(pass.world);
       double moveSpeed = config.settings.fleeSpeed;
-      if (!day) {
+      if (!pass.day) {
         moveSpeed *= config.settings.nightHerdSpeedMultiplier;
       } else {
         moveSpeed *= config.settings.dayHerdSpeedMultiplier;
       }
-      for (HerdCluster cluster : clusters) {
-        Mob leader = electLeader(cluster, cache);
-        if (leader == null) {
+      pass.moveSpeed = moveSpeed;
+      pass.resolveThreats = pass.day && config.predatorMask != 0L;
+      pass.grazing = !config.settings.grazeCrops.isEmpty() && isGrazeWindowOpen(pass.world);
+      // The planner elects leaders from this copy: forgetHerdMember keeps editing the
+      // cache's leader maps on the main thread while the plan runs.
+      pass.previousLeaderCounts = new HashMap<>(pass.cache.leaderFollowerCounts);
+      if (pass.cache.herdGraph == null) {
+        pass.cache.herdGraph =
+            new HerdGraph<>(config.settings.awarenessDistance, Mob::getUniqueId);
+      }
+      pass.plan = java.util.concurrent.CompletableFuture.supplyAsync(
+          () -> planPass(pass),
+          herdWorker);
+    }
+
+    // Runs on the herd worker: only the pass's snapshot arrays and leader copy and the
+    // species' own graph may be touched here, never live entity or world state.
+    private List<HerdUnit> planPass(HerdUpdatePass pass) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      MobSettings mobSettings = pass.config.settings;
+      HerdCache cache = pass.cache;
+      SpeciesScan scan = pass.scan;
+      List<int[]> clusters = cache.herdGraph.refresh(
+          scan.mobs,
+          scan.xs,
+          scan.ys,
+          scan.zs,
+          scan.size,
+          HERD_GRAPH_MOVE_THRESHOLD * HERD_GRAPH_MOVE_THRESHOLD,
+          HERD_GRAPH_FULL_REBUILD_UPDATES);
+      boolean day = pass.day;
+      double followRadius = followRadius(mobSettings, day);
+      double leaderWanderRadius = followRadius * DAY_LEADER_WANDER_RADIUS_MULTIPLIER;
+      double memberWanderRadius = followRadius * DAY_MEMBER_WANDER_RADIUS_MULTIPLIER;
+      int interval = mobSettings.herdUpdateIntervalTicks;
+      List<HerdUnit> units = new ArrayList<>(clusters.size());
+      for (int[] memberIndexes : clusters) {
+        List<Mob> members = new ArrayList<>(memberIndexes.length);
+        for (int memberIndex : memberIndexes) {
+          members.add(scan.mobs.get(memberIndex));
+        }
+        HerdCluster cluster = new HerdCluster(members, memberIndexes);
+        int position = electLeader(cluster, pass.previousLeaderCounts, random);
+        if (position < 0) {
           continue;
         }
-        PredatorThreat threat = resolvePredatorThreat(leader, config.settings, cache, currentTick);
+        Mob leader = cluster.members.get(position);
+        int index = cluster.memberIndexes[position];
         UUID leaderId = leader.getUniqueId();
-        newLeaderFollowerCounts.put(leaderId, cluster.members.size());
-        Location leaderLocation = leader.getLocation();
-        HerdType herdType = config.settings.herdType;
-        if (!day) {
-          herdType = HerdType.TIGHT;
-        }
-        double baseRadius = config.settings.herdRadius;
-        double followRadius = baseRadius;
-        if (herdType == HerdType.TIGHT) {
-          followRadius *= day ? 1.0 : 0.85;
-        } else {
-          followRadius *= day ? 1.8 : 1.4;
-        }
-        if (!day) {
-          followRadius *= config.settings.nightHerdRadiusMultiplier;
-        }
-        Location trailingTarget = resolveTrailingTarget(leaderLocation, baseRadius, herdType);
-        if (leaderLocation != null) {
-          newSnapshots.add(new HerdSnapshot(
-              config.entityType,
-              leaderId,
-              leaderLocation,
-              cluster.members.size(),
-              leaderLocation.getBlock().getBiome()));
-        }
-        for (Mob member : cluster.members) {
-          if (member == null || !member.isValid()) {
-            continue;
-          }
-          newMemberToLeader.put(member.getUniqueId(), leaderId);
-        }
-        if (threat != null && day) {
-          fleeFromPredator(cluster, threat, config.settings);
-          continue;
+        int dueTick = pass.scheduledTick + phaseOffset(leaderId.hashCode(), interval);
+        HerdUnit unit = new HerdUnit(cluster, leader, index, dueTick);
+        double x = scan.xs[index];
+        double y = scan.ys[index];
+        double z = scan.zs[index];
+        if (day && random.nextDouble() < DAY_LEADER_WANDER_CHANCE) {
+          unit.leaderWanderTarget =
+              resolveDayWanderTarget(pass.world, x, y, z, leaderWanderRadius, random);
         }
-        if (day && shouldMoveHerdAwayFromWater(cluster)) {
-          Location dryTarget = resolveDryTarget(leaderLocation, config.settings.awarenessDistance);
-          if (dryTarget != null) {
-            leader.getPathfinder().moveTo(
-                dryTarget,
-                moveSpeed * WATER_ESCAPE_SPEED_MULTIPLIER);
-            continue;
+        if (day) {
+          for (Mob member : cluster.members) {
+            if (member == leader || random.nextDouble() >= DAY_MEMBER_WANDER_CHANCE) {
+              continue;
+            }
+            Location wanderTarget =
+                resolveDayWanderTarget(pass.world, x, y, z, memberWanderRadius, random);
+            if (wanderTarget != null) {
+              unit.memberWanderTargets.put(member.getUniqueId(), wanderTarget);
+            }
           }
         }
-        if (day && random.nextDouble() < DAY_LEADER_WANDER_CHANCE) {
-          double leaderWanderRadius = followRadius * DAY_LEADER_WANDER_RADIUS_MULTIPLIER;
-          Location wanderTarget = resolveDayWanderTarget(leaderLocation, leaderWanderRadius);
-          if (wanderTarget != null) {
-            leader.getPathfinder().moveTo(wanderTarget, moveSpeed);
-          }
+        units.add(unit);
+      }
+      units.sort((a, b) -> Integer.compare(a.dueTick, b.dueTick));
+      return units;
+    }
+
+    private List<HerdUnit> collectPlan(HerdUpdatePass pass) {
+      try {
+        return pass.plan.join();
+      } catch (java.util.concurrent.CompletionException
+          | java.util.concurrent.CancellationException ex) {
+        getLogger().log(
+            java.util.logging.Level.WARNING,
+            "TrophicHerds failed to plan "
+                + pass.config.entityType.name().toLowerCase(Locale.ROOT)
+                + " herds in "
+                + pass.world.getName(),
+            ex);
+        return List.of();
+      }
+    }
+
+    private void finishPass(HerdUpdatePass pass) {
+      HerdCache cache = pass.cache;
+      cache.memberToLeader = pass.memberToLeader;
+      cache.leaderMembers = pass.leaderMembers;
+      cache.leaderFollowerCounts = pass.leaderFollowerCounts;
+      cache.snapshots = pass.snapshots;
+      cache.activePass = null;
+      int currentTick = Bukkit.getCurrentTick();
+      int cooldown = settings.immediateFleeCooldownTicks;
+      cache.lastImmediateFleeTicks.values().removeIf(tick -> currentTick - tick >= cooldown);
+    }
+
+    private void updateHerd(HerdUpdatePass pass, HerdUnit unit, int currentTick) {
+      World world = pass.world;
+      HerdCluster cluster = unit.cluster;
+      MobTypeConfig<? extends Mob> config = pass.config;
+      HerdCache cache = pass.cache;
+      SpeciesScan scan = pass.scan;
+      DebugSink debugSink = pass.debugSink;
+      boolean day = pass.day;
+      double moveSpeed = pass.moveSpeed;
+      Mob leader = unit.leader;
+      int leaderIndex = unit.leaderIndex;
+      if (!leader.isValid()) {
+        cluster.removeInvalid();
+        int position = electLeader(cluster, pass.previousLeaderCounts, random);
+        if (position < 0) {
+          return;
         }
-        applyPopulationControl(
-            cluster,
-            leader,
+        leader = cluster.members.get(position);
+        leaderIndex = cluster.memberIndexes[position];
+      }
+      // The unit may run most of an interval after the scan, so the decisions below read
+      // positions refreshed now rather than the scan-time ones.
+      for (int i = 0; i < cluster.members.size(); i++) {
+        Mob member = cluster.members.get(i);
+        int memberIndex = cluster.memberIndexes[i];
+        if (memberIndex >= 0 && member != null && member.isValid()) {
+          member.getLocation(memberLocation);
+          scan.updatePosition(memberIndex, memberLocation);
+        }
+      }
+      PredatorThreat threat = pass.resolveThreats
+          ? resolvePredatorThreat(leader, config.settings, config.predatorMask, cache, currentTick)
+          : null;
+      UUID leaderId = leader.getUniqueId();
+      pass.leaderFollowerCounts.put(leaderId, cluster.members.size());
+      Location leaderLocation = leader.getLocation();
+      HerdType herdType = effectiveHerdType(config.settings, day);
+      double followRadius = followRadius(config.settings, day);
+      Location trailingTarget = leaderLocation == null
+          ? null
+          : resolveTrailingTarget(
+              world,
+              leaderLocation.getX(),
+              leaderLocation.getY(),
+              leaderLocation.getZ(),
+              leaderLocation.getYaw(),
+              leaderLocation.getPitch(),
+              config.settings.herdRadius,
+              herdType);
+      if (leaderLocation != null) {
+        pass.snapshots.add(new HerdSnapshot(
             config.entityType,
-            config.settings,
-            cache,
-            currentTick,
-            biomeCounts,
-            chunkCounts,
-            debugSink);
-        attemptNaturalReproduction(
-            cluster,
+            leaderId,
+            leaderLocation,
+            cluster.members.size(),
+            scan.biomeOrdinals[leaderIndex] >= 0
+                ? scan.biome(leaderIndex)
+                : biomeCache.biomeAt(
+                    world,
+                    leaderLocation.getBlockX(),
+                    leaderLocation.getBlockY(),
+                    leaderLocation.getBlockZ())));
+      }
+      for (Mob member : cluster.members) {
+        if (member == null || !member.isValid()) {
+          continue;
+        }
+        pass.memberToLeader.put(member.getUniqueId(), leaderId);
+      }
+      pass.leaderMembers.put(leaderId, cluster.members);
+      if (threat != null) {
+        fleeFromPredator(cluster, threat, config.settings);
+        return;
+      }
+      if (day && shouldMoveHerdAwayFromWater(world, cluster, scan)) {
+        Location dryTarget = resolveDryTarget(leaderLocation, config.settings.awarenessDistance);
+        if (dryTarget != null) {
+          herdMovement.request(
+              leader,
+              dryTarget,
+              moveSpeed * WATER_ESCAPE_SPEED_MULTIPLIER,
+              HerdMovement.PRIORITY_WATER_ESCAPE);
+          return;
+        }
+      }
+      if (day && unit.leaderWanderTarget != null) {
+        herdMovement.request(
             leader,
-            config.entityType,
-            config.settings,
-            cache,
-            currentTick,
-            biomeCounts,
-            chunkCounts);
-        double radiusSq = followRadius * followRadius;
-        double dayWanderRadius = followRadius * DAY_MEMBER_WANDER_RADIUS_MULTIPLIER;
-        double dayWanderRadiusSq = dayWanderRadius * dayWanderRadius;
-        for (Mob member : cluster.members) {
-          if (member == null || !member.isValid()) {
-            continue;
-          }
-          UUID memberId = member.getUniqueId();
-          if (memberId.equals(leaderId)) {
+            unit.leaderWanderTarget,
+            moveSpeed,
+            HerdMovement.PRIORITY_WANDER);
+      }
+      applyPopulationControl(
+          cluster,
+          leader,
+          config.entityType,
+          config.settings,
+          cache,
+          currentTick,
+          scan,
+          leaderIndex,
+          debugSink);
+      attemptNaturalReproduction(
+          world,
+          cluster,
+          leader,
+          config.entityType,
+          config.settings,
+          cache,
+          currentTick,
+          scan,
+          leaderIndex);
+      double radiusSq = followRadius * followRadius;
+      double dayWanderRadius = followRadius * DAY_MEMBER_WANDER_RADIUS_MULTIPLIER;
+      double dayWanderRadiusSq = dayWanderRadius * dayWanderRadius;
+      for (int i = 0; i < cluster.members.size(); i++) {
+        Mob member = cluster.members.get(i);
+        int memberIndex = cluster.memberIndexes[i];
+        if (member == null || !member.isValid() || memberIndex < 0) {
+          continue;
+        }
+        UUID memberId = member.getUniqueId();
+        if (memberId.equals(leaderId)) {
+          continue;
+        }
+        double leaderDistanceSq = scan.distanceSq(memberIndex, leaderIndex);
+        Location wanderTarget = day ? unit.memberWanderTargets.get(memberId) : null;
+        if (wanderTarget != null && leaderDistanceSq <= dayWanderRadiusSq) {
+          herdMovement.request(member, wanderTarget, moveSpeed, HerdMovement.PRIORITY_WANDER);
+          cache.lastMemberWanderTicks.put(memberId, currentTick);
+          continue;
+        }
+        if (day) {
+          int lastWanderTick = cache.lastMemberWanderTicks.getOrDefault(memberId, -1);
+          if (lastWanderTick > 0
+              && currentTick - lastWanderTick <= DAY_MEMBER_WANDER_GRACE_TICKS) {
             continue;
           }
-          if (day
-              && random.nextDouble() < DAY_MEMBER_WANDER_CHANCE
-              && member.getLocation().distanceSquared(leaderLocation) <= dayWanderRadiusSq) {
-            double roamRadius = followRadius * DAY_MEMBER_WANDER_RADIUS_MULTIPLIER;
-            Location wanderTarget = resolveDayWanderTarget(leaderLocation, roamRadius);
-            if (wanderTarget != null) {
-              member.getPathfinder().moveTo(wanderTarget, moveSpeed);
-              cache.lastMemberWanderTicks.put(memberId, currentTick);
-              continue;
-            }
-          }
-          if (day) {
-            int lastWanderTick = cache.lastMemberWanderTicks.getOrDefault(memberId, -1);
-            if (lastWanderTick > 0
-                && currentTick - lastWanderTick <= DAY_MEMBER_WANDER_GRACE_TICKS) {
-              continue;
-            }
+        }
+        if (leaderDistanceSq > radiusSq) {
+          Location target = herdType == HerdType.TIGHT ? trailingTarget : leaderLocation;
+          if (target == null) {
+            target = leaderLocation;
           }
-          if (member.getLocation().distanceSquared(leaderLocation) > radiusSq) {
-            Location target = herdType == HerdType.TIGHT ? trailingTarget : leaderLocation;
-            if (target == null) {
-              target = leaderLocation;
-            }
-            if (target != null) {
-              member.getPathfinder().moveTo(target, moveSpeed);
-            }
+          if (target != null) {
+            herdMovement.request(member, target, moveSpeed, HerdMovement.PRIORITY_FOLLOW);
           }
         }
-        handleLeaderGrazing(world, leader, cluster, config, cache, currentTick, moveSpeed);
       }
-
-      cache.memberToLeader = newMemberToLeader;
-      cache.leaderFollowerCounts = newLeaderFollowerCounts;
-      cache.snapshots = newSnapshots;
-      cache.lastUpdateTick = currentTick;
+      if (!pass.grazing) {
+        return;
+      }
+      handleLeaderGrazing(
+          world,
+          leader,
+          cluster,
+          config,
+          cache,
+          currentTick,
+          moveSpeed,
+          scan,
+          leaderIndex);
     }
 
     private PredatorThreat resolvePredatorThreat(
         Mob leader,
         MobSettings settings,
+        long predatorMask,
         HerdCache cache,
         int currentTick) {
       if (leader == null || !leader.isValid()) {
         return null;
       }
       UUID leaderId = leader.getUniqueId();
-      PredatorThreat panicThreat = findPanicThreat(leader, settings);
-      if (panicThreat != null) {
+      PredatorThreat threat = threatField.nearestThreat(leader, settings, predatorMask);
+      if (threat != null) {
         cache.lastThreats.put(
             leaderId,
-            new PredatorThreatState(panicThreat.predatorLocation, currentTick));
-        return panicThreat;
-      }
-      boolean shouldCheck = shouldCheckPredators(currentTick, leaderId);
-      if (shouldCheck) {
-        PredatorThreat threat = findPredatorThreat(leader, settings, currentTick);
-        if (threat != null) {
-          cache.lastThreats.put(
-              leaderId,
-              new PredatorThreatState(threat.predatorLocation, currentTick));
-        } else {
-          cache.lastThreats.remove(leaderId);
-        }
+            new PredatorThreatState(threat.predatorLocation, currentTick));
         return threat;
       }
       PredatorThreatState cached = cache.lastThreats.get(leaderId);
@@ -776,193 +1090,123 @@ public final class TrophicHerds extends JavaPlugin {
       return new PredatorThreat(cached.predatorLocation);
     }
 
-    private PredatorThreat findPanicThreat(Mob leader, MobSettings settings) {
-      if (leader == null || !leader.isValid()) {
-        return null;
-      }
-      if (settings.predators.isEmpty()) {
-        return null;
-      }
-      double panicRange = settings.panicRange;
-      if (panicRange <= 0.0) {
-        return null;
-      }
-      Location leaderLocation = leader.getLocation();
-      double panicRangeSq = panicRange * panicRange;
-      for (Entity entity : leader.getNearbyEntities(panicRange, panicRange, panicRange)) {
-        if (entity == null || !entity.isValid()) {
-          continue;
-        }
-        EntityType type = entity.getType();
-        if (!settings.predators.contains(type)) {
-          continue;
-        }
-        if (entity instanceof Player player && (!isSurvivalPlayer(player) || player.isDead())) {
-          logIgnoredPredator(player, "panic threat scan");
-          continue;
-        }
-        double distanceSq = leaderLocation.distanceSquared(entity.getLocation());
-        if (distanceSq <= panicRangeSq) {
-          return new PredatorThreat(entity.getLocation());
-        }
-      }
-      return null;
-    }
-
-    private boolean shouldCheckPredators(int currentTick, UUID leaderId) {
-      if (PREDATOR_CHECK_INTERVAL_TICKS <= 1) {
-        return true;
+    private int phaseOffset(int hash, int interval) {
+      if (interval <= 1) {
+        return 0;
       }
-      int hash = leaderId != null ? leaderId.hashCode() : 0;
-      int offset = Math.floorMod(hash, PREDATOR_CHECK_INTERVAL_TICKS);
-      return Math.floorMod(currentTick + offset, PREDATOR_CHECK_INTERVAL_TICKS) == 0;
+      return Math.floorMod(hash, interval);
     }
 
     private HerdCache getCache(World world, EntityType type) {
       return herdCaches
           .computeIfAbsent(world, ignored -> new EnumMap<>(EntityType.class))
-          .computeIfAbsent(type, ignored -> new HerdCache());
+          .computeIfAbsent(type, ignored -> createCache(world, type));
     }
 
-    private Map<Biome, Integer> countByBiome(List<? extends Mob> mobs) {
-      Map<Biome, Integer> counts = new HashMap<>();
-      for (Mob mob : mobs) {
-        if (mob == null || !mob.isValid()) {
-          continue;
-        }
-        Biome biome = mob.getLocation().getBlock().getBiome();
-        counts.merge(biome, 1, Integer::sum);
-      }
-      return counts;
-    }
-
-    private Map<Long, Integer> countByChunk(List<? extends Mob> mobs) {
-      Map<Long, Integer> counts = new HashMap<>();
-      for (Mob mob : mobs) {
-        if (mob == null || !mob.isValid()) {
-          continue;
-        }
-        var chunk = mob.getLocation().getChunk();
-        long key = chunkKey(chunk.getX(), chunk.getZ());
-        counts.merge(key, 1, Integer::sum);
-      }
-      return counts;
-    }
-
-    private long chunkKey(int chunkX, int chunkZ) {
-      return (((long) chunkX) << 32) ^ (chunkZ & 0xffffffffL);
-    }
-
-    private List<HerdCluster> buildClusters(List<? extends Mob> mobs, double awarenessDistance) {
-      double distanceSq = awarenessDistance * awarenessDistance;
-      List<HerdCluster> clusters = new ArrayList<>();
-      boolean[] assigned = new boolean[mobs.size()];
-      for (int i = 0; i < mobs.size(); i++) {
-        if (assigned[i]) {
-          continue;
-        }
-        Mob seed = mobs.get(i);
-        if (seed == null || !seed.isValid()) {
-          assigned[i] = true;
-          continue;
-        }
-        List<Mob> members = new ArrayList<>();
-        Deque<Integer> queue = new ArrayDeque<>();
-        queue.add(i);
-        assigned[i] = true;
-        while (!queue.isEmpty()) {
-          int index = queue.removeFirst();
-          Mob current = mobs.get(index);
-          if (current == null || !current.isValid()) {
-            continue;
-          }
-          members.add(current);
-          Location currentLocation = current.getLocation();
-          for (int j = 0; j < mobs.size(); j++) {
-            if (assigned[j]) {
-              continue;
-            }
-            Mob other = mobs.get(j);
-            if (other == null || !other.isValid()) {
-              assigned[j] = true;
-              continue;
-            }
-            if (currentLocation.distanceSquared(other.getLocation()) <= distanceSq) {
-              assigned[j] = true;
-              queue.add(j);
-            }
-          }
-        }
-        if (!members.isEmpty()) {
-          clusters.add(new HerdCluster(members));
-        }
-      }
-      return clusters;
+    private HerdCache createCache(World world, EntityType type) {
+      HerdCache cache = new HerdCache();
+      MobTypeConfig<? extends Mob> config = settings.mobConfigs.get(type);
+      if (config != null) {
+        // Start each world and species at its own point in the interval so
+        // their passes do not all begin on the same tick.
+        int phase = phaseOffset(
+            31 * world.getUID().hashCode() + type.ordinal(),
+            config.settings.herdUpdateIntervalTicks);
+        cache.lastUpdateTick = -phase;
+      }
+      return cache;
     }
 
-    private Mob electLeader(HerdCluster cluster, HerdCache cache) {
-      if (cluster.members.isEmpty()) {
-        return null;
+    // Returns the leader's position in the cluster, or -1 for an empty cluster. Ties between
+    // previous leaders are broken uniformly at random.
+    private int electLeader(
+        HerdCluster cluster,
+        Map<UUID, Integer> previousLeaderCounts,
+        ThreadLocalRandom random) {
+      int size = cluster.members.size();
+      if (size == 0) {
+        return -1;
       }
-      List<Mob> candidates = new ArrayList<>();
-      for (Mob member : cluster.members) {
-        if (member == null || !member.isValid()) {
+      int best = -1;
+      int bestCount = -1;
+      int ties = 0;
+      for (int i = 0; i < size; i++) {
+        Integer count = previousLeaderCounts.get(cluster.members.get(i).getUniqueId());
+        if (count == null) {
           continue;
         }
-        UUID memberId = member.getUniqueId();
-        UUID previousLeader = cache.memberToLeader.get(memberId);
-        if (previousLeader != null && previousLeader.equals(memberId)) {
-          candidates.add(member);
-        }
-      }
-      if (candidates.isEmpty()) {
-        return cluster.members.get(random.nextInt(cluster.members.size()));
-      }
-      int bestCount = -1;
-      List<Mob> bestLeaders = new ArrayList<>();
-      for (Mob candidate : candidates) {
-        UUID candidateId = candidate.getUniqueId();
-        int count = cache.leaderFollowerCounts.getOrDefault(candidateId, 1);
         if (count > bestCount) {
           bestCount = count;
-          bestLeaders.clear();
-          bestLeaders.add(candidate);
-        } else if (count == bestCount) {
-          bestLeaders.add(candidate);
+          best = i;
+          ties = 1;
+        } else if (count == bestCount && random.nextInt(++ties) == 0) {
+          best = i;
         }
       }
-      return bestLeaders.get(random.nextInt(bestLeaders.size()));
+      return best >= 0 ? best : random.nextInt(size);
     }
 
     private Location resolveTrailingTarget(
-        Location leaderLocation,
+        World world,
+        double x,
+        double y,
+        double z,
+        float yaw,
+        float pitch,
         double herdRadius,
         HerdType herdType) {
-      if (leaderLocation == null) {
-        return null;
-      }
       if (herdRadius <= 0.0) {
-        return leaderLocation;
-      }
-      org.bukkit.util.Vector direction = leaderLocation.getDirection();
-      if (direction.lengthSquared() < 0.001) {
-        return leaderLocation;
-      }
+        return new Location(world, x, y, z, yaw, pitch);
+      }
+      // Same unit vector Location#getDirection derives from yaw and pitch.
+      double yawRadians = Math.toRadians(yaw);
+      double pitchRadians = Math.toRadians(pitch);
+      double horizontal = Math.cos(pitchRadians);
+      double directionX = -horizontal * Math.sin(yawRadians);
+      double directionY = -Math.sin(pitchRadians);
+      double directionZ = horizontal * Math.cos(yawRadians);
       double trailingDistance = herdRadius * (herdType == HerdType.TIGHT ? 0.35 : 0.75);
-      return leaderLocation.clone().subtract(direction.normalize().multiply(trailingDistance));
+      return new Location(
+          world,
+          x - directionX * trailingDistance,
+          y - directionY * trailingDistance,
+          z - directionZ * trailingDistance,
+          yaw,
+          pitch);
     }
 
-    private Location resolveDayWanderTarget(Location leaderLocation, double radius) {
-      if (leaderLocation == null || radius <= 0.0) {
+    private Location resolveDayWanderTarget(
+        World world,
+        double x,
+        double y,
+        double z,
+        double radius,
+        ThreadLocalRandom random) {
+      if (radius <= 0.0) {
         return null;
       }
       double angle = random.nextDouble(0.0, Math.PI * 2.0);
       double distance = random.nextDouble(0.35, 1.0) * radius;
       double dx = Math.cos(angle) * distance;
       double dz = Math.sin(angle) * distance;
-      Location target = leaderLocation.clone().add(dx, 0.0, dz);
-      target.setY(leaderLocation.getY());
-      return target;
+      return new Location(world, x + dx, y, z + dz);
+    }
+
+    private HerdType effectiveHerdType(MobSettings settings, boolean day) {
+      return day ? settings.herdType : HerdType.TIGHT;
+    }
+
+    private double followRadius(MobSettings settings, boolean day) {
+      double followRadius = settings.herdRadius;
+      if (effectiveHerdType(settings, day) == HerdType.TIGHT) {
+        followRadius *= day ? 1.0 : 0.85;
+      } else {
+        followRadius *= day ? 1.8 : 1.4;
+      }
+      if (!day) {
+        followRadius *= settings.nightHerdRadiusMultiplier;
+      }
+      return followRadius;
     }
 
     private boolean isDay(World world) {
@@ -977,33 +1221,36 @@ public final class TrophicHerds extends JavaPlugin {
         MobTypeConfig<? extends Mob> config,
         HerdCache cache,
         int currentTick,
-        double moveSpeed) {
+        double moveSpeed,
+        SpeciesScan scan,
+        int leaderIndex) {
       if (leader == null || !leader.isValid()) {
         return;
       }
-      if (config.settings.grazeCrops.isEmpty()) {
-        return;
-      }
-      Location grazeTarget = findGrazeTarget(world, leader.getLocation(), config.settings);
+      Location grazeTarget = findGrazeTarget(
+          world,
+          (int) Math.floor(scan.xs[leaderIndex]),
+          (int) Math.floor(scan.zs[leaderIndex]),
+          config.settings);
       if (grazeTarget == null) {
         return;
       }
-      leader.getPathfinder().moveTo(grazeTarget, moveSpeed);
-      if (!isGrazeWindowOpen(world)) {
-        return;
-      }
+      herdMovement.request(leader, grazeTarget, moveSpeed, HerdMovement.PRIORITY_GRAZE);
       int grazeFrequencyTicks = config.settings.grazeFrequencyTicks;
-      if (leader.getLocation().distanceSquared(grazeTarget) <= GRAZE_REACH_DISTANCE_SQ) {
+      if (scan.distanceSq(leaderIndex, grazeTarget) <= GRAZE_REACH_DISTANCE_SQ) {
         if (isGrazeReady(leader.getUniqueId(), cache, grazeFrequencyTicks, currentTick)
             && tryEatCropAt(grazeTarget, config.settings.grazeCrops)) {
           cache.lastGrazeTicks.put(leader.getUniqueId(), currentTick);
         }
       }
-      for (Mob member : cluster.members) {
+      for (int i = 0; i < cluster.members.size(); i++) {
+        Mob member = cluster.members.get(i);
         if (member == null || !member.isValid()) {
           continue;
         }
-        if (member.getLocation().distanceSquared(grazeTarget) <= GRAZE_REACH_DISTANCE_SQ) {
+        int memberIndex = cluster.memberIndexes[i];
+        if (memberIndex >= 0
+            && scan.distanceSq(memberIndex, grazeTarget) <= GRAZE_REACH_DISTANCE_SQ) {
           UUID memberId = member.getUniqueId();
           if (isGrazeReady(memberId, cache, grazeFrequencyTicks, currentTick)
               && tryEatCropAt(grazeTarget, config.settings.grazeCrops)) {
@@ -1013,218 +1260,174 @@ public final class TrophicHerds extends JavaPlugin {
       }
     }
 
-    private PredatorThreat findPredatorThreat(
-        Mob leader,
-        MobSettings settings,
-        int currentTick) {
-      if (leader == null || !leader.isValid()) {
-        return null;
+    private void fleeFromPredator(
+        HerdCluster cluster,
+        PredatorThreat threat,
+        MobSettings settings) {
+      if (cluster == null || threat == null) {
+        return;
       }
-      if (settings.predators.isEmpty()) {
-        return null;
+      World world = null;
+      if (!cluster.members.isEmpty() && cluster.members.get(0) != null) {
+        world = cluster.members.get(0).getWorld();
+      }
+      if (world != null && !isDay(world)) {
+        return;
       }
       double awareness = settings.awarenessDistance;
       if (awareness <= 0.0) {
-        return null;
+        return;
       }
-      Location leaderLocation = leader.getLocation();
-      double bestDistanceSq = awareness * awareness;
-      Location bestLocation = null;
-      double panicRangeSq = settings.panicRange * settings.panicRange;
-      int chunkRadius = (int) Math.ceil(awareness / 16.0);
-      int originChunkX = leaderLocation.getBlockX() >> 4;
-      int originChunkZ = leaderLocation.getBlockZ() >> 4;
-      for (int dx = -chunkRadius; dx <= chunkRadius; dx++) {
-        for (int dz = -chunkRadius; dz <= chunkRadius; dz++) {
-          int chunkX = originChunkX + dx;
-          int chunkZ = originChunkZ + dz;
-          if (!leader.getWorld().isChunkLoaded(chunkX, chunkZ)) {
-            continue;
-          }
-          PredatorChunkCache cached = getPredatorChunkCache(
-              leader.getWorld(),
-              chunkX,
-              chunkZ,
-              settings.predators,
-              currentTick);
-          for (Entity entity : cached.entities) {
-            if (entity == null || !entity.isValid()) {
-              continue;
-            }
-            EntityType type = entity.getType();
-            if (!settings.predators.contains(type)) {
-              continue;
-            }
-        if (entity instanceof Player player && (!isSurvivalPlayer(player) || player.isDead())) {
-          logIgnoredPredator(player, "predator threat scan");
-          continue;
-        }
-        double distanceSq = leaderLocation.distanceSquared(entity.getLocation());
-        if (distanceSq > bestDistanceSq) {
-          continue;
-            }
-            bestDistanceSq = distanceSq;
-            bestLocation = entity.getLocation();
-            if (panicRangeSq > 0.0 && bestDistanceSq <= panicRangeSq) {
-              return new PredatorThreat(bestLocation);
-            }
-          }
-        }
-      }
-      if (bestLocation == null) {
-        return null;
-      }
-      return new PredatorThreat(bestLocation);
-    }
-
-    private PredatorChunkCache getPredatorChunkCache(
-        World world,
-        int chunkX,
-        int chunkZ,
-        java.util.EnumSet<EntityType> predatorTypes,
-        int currentTick) {
-      if (predatorChunkCache.size() > PREDATOR_CACHE_MAX_ENTRIES) {
-        prunePredatorChunkCache(currentTick);
-      }
-      int predatorSignature = predatorTypes.hashCode();
-      PredatorChunkKey key = new PredatorChunkKey(
-          world.getUID(),
-          chunkX,
-          chunkZ,
-          predatorSignature);
-      PredatorChunkCache cached = predatorChunkCache.get(key);
-      if (cached != null && currentTick - cached.lastScanTick <= PREDATOR_CHUNK_CACHE_TICKS) {
-        return cached;
-      }
-      Chunk chunk = world.getChunkAt(chunkX, chunkZ);
-      Entity[] entities = chunk.getEntities();
-      List<Entity> predatorEntities = new ArrayList<>();
-      for (Entity entity : entities) {
-        if (entity == null || !entity.isValid()) {
-          continue;
-        }
-        if (entity instanceof Player player && (!isSurvivalPlayer(player) || player.isDead())) {
-          logIgnoredPredator(player, "predator chunk cache");
+      fleeing.clear();
+      double centerX = 0.0;
+      double centerY = 0.0;
+      double centerZ = 0.0;
+      for (Mob member : cluster.members) {
+        if (member == null || !member.isValid()) {
           continue;
         }
-        if (predatorTypes.contains(entity.getType())) {
-          predatorEntities.add(entity);
+        int index = fleeing.size();
+        if (index == fleeXs.length) {
+          fleeXs = java.util.Arrays.copyOf(fleeXs, index * 2);
+          fleeYs = java.util.Arrays.copyOf(fleeYs, index * 2);
+          fleeZs = java.util.Arrays.copyOf(fleeZs, index * 2);
         }
-      }
-      PredatorChunkCache refreshed = new PredatorChunkCache(predatorEntities, currentTick);
-      predatorChunkCache.put(key, refreshed);
-      return refreshed;
-    }
-
-    private void prunePredatorChunkCache(int currentTick) {
-      int staleAfter = PREDATOR_CHUNK_CACHE_TICKS * 2;
-      predatorChunkCache.entrySet().removeIf(
-          entry -> currentTick - entry.getValue().lastScanTick > staleAfter);
-    }
-
-    private void invalidatePredatorChunk(World world, int chunkX, int chunkZ) {
-      if (world == null) {
-        return;
-      }
-      UUID worldId = world.getUID();
-      predatorChunkCache.entrySet().removeIf(
-          entry -> entry.getKey().worldId.equals(worldId)
-              && entry.getKey().chunkX == chunkX
-              && entry.getKey().chunkZ == chunkZ);
-    }
-
-    private void fleeFromPredator(
-        HerdCluster cluster,
-        PredatorThreat threat,
-        MobSettings settings) {
-      if (cluster == null || threat == null) {
-        return;
-      }
-      World world = null;
-      if (!cluster.members.isEmpty() && cluster.members.get(0) != null) {
-        world = cluster.members.get(0).getWorld();
-      }
-      if (world != null && !isDay(world)) {
-        return;
-      }
-      double awareness = settings.awarenessDistance;
-      if (awareness <= 0.0) {
+        member.getLocation(steeringLocation);
+        fleeing.add(member);
+        fleeXs[index] = steeringLocation.getX();
+        fleeYs[index] = steeringLocation.getY();
+        fleeZs[index] = steeringLocation.getZ();
+        centerX += fleeXs[index];
+        centerY += fleeYs[index];
+        centerZ += fleeZs[index];
+      }
+      int count = fleeing.size();
+      if (count == 0) {
         return;
       }
+      centerX /= count;
+      centerY /= count;
+      centerZ /= count;
+      double predatorX = threat.predatorLocation.getX();
+      double predatorY = threat.predatorLocation.getY();
+      double predatorZ = threat.predatorLocation.getZ();
+      double awayX = centerX - predatorX;
+      double awayZ = centerZ - predatorZ;
+      if (awayX * awayX + awayZ * awayZ < 0.001) {
+        awayX = random.nextDouble(-1.0, 1.0);
+        awayZ = random.nextDouble(-1.0, 1.0);
+      }
+      // Escape directions are hazard-scored once from the herd's center; members then
+      // keep their sideways spread as lanes around that single escape point.
+      resolveSafeFleeTarget(world, centerX, centerZ, awayX, awayZ, awareness, steeringPoint);
+      double escapeX = steeringPoint.x;
+      double escapeZ = steeringPoint.z;
+      double awayLength = Math.sqrt(awayX * awayX + awayZ * awayZ);
+      double laneX = awayLength < 0.001 ? 0.0 : -awayZ / awayLength;
+      double laneZ = awayLength < 0.001 ? 0.0 : awayX / awayLength;
+      double laneLimit = awareness * FLEE_LANE_WIDTH_MULTIPLIER;
       double fleeRangeSq = settings.fleeRange * settings.fleeRange;
       double panicRangeSq = settings.panicRange * settings.panicRange;
       double awarenessSpeed = settings.fleeSpeed * AWARENESS_SPEED_MULTIPLIER;
-      for (Mob member : cluster.members) {
-        if (member == null || !member.isValid()) {
-          continue;
-        }
-        Location memberLocation = member.getLocation();
-        double predatorDistanceSq = memberLocation.distanceSquared(threat.predatorLocation);
+      for (int i = 0; i < count; i++) {
+        double dx = fleeXs[i] - predatorX;
+        double dy = fleeYs[i] - predatorY;
+        double dz = fleeZs[i] - predatorZ;
+        double predatorDistanceSq = dx * dx + dy * dy + dz * dz;
         double speed = awarenessSpeed;
         if (panicRangeSq > 0.0 && predatorDistanceSq <= panicRangeSq) {
           speed = settings.panicSpeed;
         } else if (fleeRangeSq > 0.0 && predatorDistanceSq <= fleeRangeSq) {
           speed = settings.fleeSpeed;
         }
-        org.bukkit.util.Vector away = memberLocation.toVector()
-            .subtract(threat.predatorLocation.toVector());
-        if (away.lengthSquared() < 0.001) {
-          away = new org.bukkit.util.Vector(
-              random.nextDouble(-1.0, 1.0),
-              0.0,
-              random.nextDouble(-1.0, 1.0));
-        }
-        Location target = resolveSafeFleeTarget(memberLocation, away, awareness);
-        member.getPathfinder().moveTo(target, speed);
-      }
+        double lane = (fleeXs[i] - centerX) * laneX + (fleeZs[i] - centerZ) * laneZ;
+        lane = Math.max(-laneLimit, Math.min(laneLimit, lane));
+        Location target = new Location(
+            world,
+            escapeX + laneX * lane,
+            fleeYs[i],
+            escapeZ + laneZ * lane);
+        herdMovement.request(fleeing.get(i), target, speed, HerdMovement.PRIORITY_FLEE);
+      }
+      fleeing.clear();
     }
 
-    private Location resolveSafeFleeTarget(
-        Location origin,
-        org.bukkit.util.Vector away,
-        double awareness) {
-      if (origin == null || away == null) {
-        return origin;
-      }
-      if (awareness <= 0.0) {
-        return origin;
-      }
-      org.bukkit.util.Vector base = away.clone();
-      if (base.lengthSquared() < 0.001) {
-        return origin;
+    private void resolveSafeFleeTarget(
+        World world,
+        double originX,
+        double originZ,
+        double awayX,
+        double awayZ,
+        double awareness,
+        SteeringPoint out) {
+      out.x = originX;
+      out.z = originZ;
+      double length = Math.sqrt(awayX * awayX + awayZ * awayZ);
+      if (awareness <= 0.0 || length < 0.001) {
+        return;
       }
-      base = base.normalize();
-      double[] distances = new double[] {awareness, awareness * 0.65, awareness * 0.4};
-      double[] angles = new double[] {0.0, 0.35, -0.35, 0.7, -0.7};
-      Location bestSafe = null;
+      double baseX = awayX / length;
+      double baseZ = awayZ / length;
       int bestSafeScore = Integer.MAX_VALUE;
-      Location bestOverall = null;
       int bestOverallScore = Integer.MAX_VALUE;
-      for (double distance : distances) {
-        for (double angle : angles) {
-          org.bukkit.util.Vector rotated = rotateAroundY(base, angle);
-          Location candidate = origin.clone().add(rotated.multiply(distance));
-          candidate.setY(origin.getY());
-          int score = hazardManager.scoreAt(candidate);
+      double safeX = 0.0;
+      double safeZ = 0.0;
+      boolean foundSafe = false;
+      for (double distanceFactor : FLEE_DISTANCE_FACTORS) {
+        double distance = awareness * distanceFactor;
+        for (int a = 0; a < FLEE_ANGLE_COS.length; a++) {
+          double cos = FLEE_ANGLE_COS[a];
+          double sin = FLEE_ANGLE_SIN[a];
+          double x = originX + (baseX * cos - baseZ * sin) * distance;
+          double z = originZ + (baseX * sin + baseZ * cos) * distance;
+          int score = hazardManager.scoreAt(world, (int) Math.floor(x), (int) Math.floor(z));
           if (score < bestOverallScore) {
             bestOverallScore = score;
-            bestOverall = candidate;
+            out.x = x;
+            out.z = z;
           }
           if (score < HazardManager.MUST_AVOID_SCORE && score < bestSafeScore) {
             bestSafeScore = score;
-            bestSafe = candidate;
+            safeX = x;
+            safeZ = z;
+            foundSafe = true;
           }
         }
       }
-      return bestSafe != null ? bestSafe : bestOverall != null ? bestOverall : origin;
+      if (foundSafe) {
+        out.x = safeX;
+        out.z = safeZ;
+      }
+    }
+
+    private void queueImmediateFlee(
+        Mob prey,
+        Entity predator,
+        MobTypeConfig<? extends Mob> config,
+        int currentTick) {
+      HerdCache cache = getCache(prey.getWorld(), prey.getType());
+      UUID preyId = prey.getUniqueId();
+      UUID leaderId = cache.memberToLeader.getOrDefault(preyId, preyId);
+      int cooldown = settings.immediateFleeCooldownTicks;
+      int lastFleeTick = cache.lastImmediateFleeTicks.getOrDefault(leaderId, -cooldown);
+      if (currentTick - lastFleeTick < cooldown || pendingFlees.containsKey(leaderId)) {
+        return;
+      }
+      pendingFlees.put(
+          leaderId,
+          new PendingFlee(prey, predator.getLocation(), config.settings, cache));
     }
 
-    private org.bukkit.util.Vector rotateAroundY(org.bukkit.util.Vector vector, double radians) {
-      double cos = Math.cos(radians);
-      double sin = Math.sin(radians);
-      double x = vector.getX() * cos - vector.getZ() * sin;
-      double z = vector.getX() * sin + vector.getZ() * cos;
-      return new org.bukkit.util.Vector(x, vector.getY(), z);
+    private void drainImmediateFlees(int currentTick) {
+      if (pendingFlees.isEmpty()) {
+        return;
+      }
+      for (Map.Entry<UUID, PendingFlee> entry : pendingFlees.entrySet()) {
+        PendingFlee flee = entry.getValue();
+        flee.cache.lastImmediateFleeTicks.put(entry.getKey(), currentTick);
+        triggerImmediateFlee(flee.prey, flee.predatorLocation, flee.settings, currentTick);
+      }
+      pendingFlees.clear();
     }
 
     private void triggerImmediateFlee(
@@ -1235,10 +1438,21 @@ public final class TrophicHerds extends JavaPlugin {
       if (prey == null || !prey.isValid() || predatorLocation == null) {
         return;
       }
-      double awareness = settings.awarenessDistance;
-      if (awareness <= 0.0) {
+      if (settings.awarenessDistance <= 0.0) {
         return;
       }
+      HerdCache cache = getCache(prey.getWorld(), prey.getType());
+      UUID leaderId = cache.memberToLeader.getOrDefault(prey.getUniqueId(), prey.getUniqueId());
+      List<Mob> members = cache.leaderMembers.get(leaderId);
+      if (members == null) {
+        members = findUnassignedHerd(prey, settings.awarenessDistance);
+      }
+      cache.lastThreats.put(leaderId, new PredatorThreatState(predatorLocation, currentTick));
+      fleeFromPredator(new HerdCluster(members), new PredatorThreat(predatorLocation), settings);
+      herdMovement.flush();
+    }
+
+    private List<Mob> findUnassignedHerd(Mob prey, double awareness) {
       List<Mob> members = new ArrayList<>();
       members.add(prey);
       for (Entity entity : prey.getNearbyEntities(awareness, awareness, awareness)) {
@@ -1253,25 +1467,38 @@ public final class TrophicHerds extends JavaPlugin {
         }
         members.add(mob);
       }
-      if (members.isEmpty()) {
+      return members;
+    }
+
+    private void forgetHerdMember(Entity entity) {
+      if (!(entity instanceof Mob mob)) {
         return;
       }
-      HerdCache cache = getCache(prey.getWorld(), prey.getType());
-      UUID leaderId = cache.memberToLeader.getOrDefault(prey.getUniqueId(), prey.getUniqueId());
-      cache.lastThreats.put(leaderId, new PredatorThreatState(predatorLocation, currentTick));
-      fleeFromPredator(new HerdCluster(members), new PredatorThreat(predatorLocation), settings);
+      EnumMap<EntityType, HerdCache> caches = herdCaches.get(mob.getWorld());
+      HerdCache cache = caches == null ? null : caches.get(mob.getType());
+      if (cache == null) {
+        return;
+      }
+      herdMovement.forget(mob.getUniqueId());
+      UUID leaderId = cache.memberToLeader.remove(mob.getUniqueId());
+      List<Mob> members = leaderId == null ? null : cache.leaderMembers.get(leaderId);
+      if (members != null) {
+        members.remove(mob);
+      }
     }
 
-    private Location findGrazeTarget(World world, Location origin, MobSettings settings) {
-      if (origin == null || world == null) {
+    private Location findGrazeTarget(
+        World world,
+        int originX,
+        int originZ,
+        MobSettings settings) {
+      if (world == null) {
         return null;
       }
       double radius = settings.awarenessDistance;
       if (radius <= 0.0) {
         return null;
       }
-      int originX = origin.getBlockX();
-      int originZ = origin.getBlockZ();
       for (int i = 0; i < GRAZE_SCAN_ATTEMPTS; i++) {
         double angle = random.nextDouble(0.0, Math.PI * 2.0);
         double distance = random.nextDouble(0.0, radius);
@@ -1307,15 +1534,15 @@ public final class TrophicHerds extends JavaPlugin {
         MobSettings settings,
         HerdCache cache,
         int currentTick,
-        Map<Biome, Integer> biomeCounts,
-        Map<Long, Integer> chunkCounts,
+        SpeciesScan scan,
+        int leaderIndex,
         DebugSink debugSink) {
       if (cluster == null || leader == null || !leader.isValid()) {
         return;
       }
-      Biome leaderBiome = leader.getLocation().getBlock().getBiome();
-      int biomeCount = biomeCounts.getOrDefault(leaderBiome, 0);
-      if (settings.minBiomePopulation > 0 && biomeCount <= settings.minBiomePopulation) {
+      if (settings.minBiomePopulation > 0
+          && scan.ledger.biomeCount(scan.biomeOrdinals[leaderIndex])
+              <= settings.minBiomePopulation) {
         return;
       }
       int clusterSize = cluster.members.size();
@@ -1327,8 +1554,8 @@ public final class TrophicHerds extends JavaPlugin {
           settings,
           cache,
           currentTick,
-          biomeCounts,
-          chunkCounts);
+          scan,
+          leaderIndex);
       boolean culled = false;
       if (softCapPlan.removals > 0) {
         int removed = cullMembers(
@@ -1336,8 +1563,7 @@ public final class TrophicHerds extends JavaPlugin {
             leader.getUniqueId(),
             softCapPlan.removals,
             settings,
-            biomeCounts,
-            chunkCounts);
+            scan);
         if (removed > 0) {
           cache.lastCullTicks.put(leader.getUniqueId(), currentTick);
           logCull(
@@ -1376,29 +1602,29 @@ public final class TrophicHerds extends JavaPlugin {
           leader.getUniqueId(),
           1,
           settings,
-          biomeCounts,
-          chunkCounts);
+          scan);
       if (removed > 0) {
         logCull(debugSink, removed, entityType, "density throttle");
       }
     }
 
     private void attemptNaturalReproduction(
+        World world,
         HerdCluster cluster,
         Mob leader,
         EntityType entityType,
         MobSettings settings,
         HerdCache cache,
         int currentTick,
-        Map<Biome, Integer> biomeCounts,
-        Map<Long, Integer> chunkCounts) {
+        SpeciesScan scan,
+        int leaderIndex) {
       if (!settings.reproduceEnabled || settings.reproduceRate <= 0.0) {
         return;
       }
       if (cluster == null || leader == null || !leader.isValid()) {
         return;
       }
-      if (isOverCap(leader, settings, biomeCounts, chunkCounts)) {
+      if (isOverCap(leader, settings, scan, leaderIndex)) {
         return;
       }
       if (settings.densityThrottleThreshold > 0
@@ -1409,40 +1635,49 @@ public final class TrophicHerds extends JavaPlugin {
         return;
       }
       double spacingSq = settings.reproduceSpacing * settings.reproduceSpacing;
-      List<Mob> eligible = new ArrayList<>();
-      for (Mob member : cluster.members) {
-        if (isEligibleParent(member, settings, cache, currentTick)) {
-          eligible.add(member);
+      int[] eligible = new int[cluster.members.size()];
+      int eligibleCount = 0;
+      for (int i = 0; i < cluster.members.size(); i++) {
+        int memberIndex = cluster.memberIndexes[i];
+        if (isEligibleParent(
+            world, cluster.members.get(i), memberIndex, scan, settings, cache, currentTick)) {
+          eligible[eligibleCount++] = memberIndex;
         }
       }
-      if (eligible.size() < 2) {
+      if (eligibleCount < 2) {
         return;
       }
-      for (int attempt = 0; attempt < Math.min(6, eligible.size()); attempt++) {
-        Mob parentA = eligible.get(random.nextInt(eligible.size()));
-        Location locationA = parentA.getLocation();
-        Mob parentB = null;
-        for (Mob candidate : eligible) {
-          if (candidate == parentA) {
+      for (int attempt = 0; attempt < Math.min(6, eligibleCount); attempt++) {
+        int indexA = eligible[random.nextInt(eligibleCount)];
+        int indexB = -1;
+        for (int n = 0; n < eligibleCount; n++) {
+          int candidateIndex = eligible[n];
+          if (candidateIndex == indexA) {
             continue;
           }
-          if (locationA.distanceSquared(candidate.getLocation()) <= spacingSq) {
-            parentB = candidate;
+          if (scan.distanceSq(indexA, candidateIndex) <= spacingSq) {
+            indexB = candidateIndex;
             break;
           }
         }
-        if (parentB == null) {
+        if (indexB < 0) {
           continue;
         }
-        Location spawnLocation = averageLocation(parentA.getLocation(), parentB.getLocation());
-        if (spawnLocation == null) {
-          return;
-        }
+        Mob parentA = scan.mobs.get(indexA);
+        Mob parentB = scan.mobs.get(indexB);
+        Location spawnLocation = new Location(
+            world,
+            (scan.xs[indexA] + scan.xs[indexB]) * 0.5,
+            (scan.ys[indexA] + scan.ys[indexB]) * 0.5,
+            (scan.zs[indexA] + scan.zs[indexB]) * 0.5);
         Entity babyEntity = leader.getWorld().spawnEntity(spawnLocation, entityType);
         if (babyEntity instanceof Ageable baby) {
           baby.setBaby();
           cache.lastReproduceTicks.put(parentA.getUniqueId(), currentTick);
           cache.lastReproduceTicks.put(parentB.getUniqueId(), currentTick);
+          scan.ledger.add(
+              scan.biomeOrdinals[indexA],
+              chunkKey(spawnLocation.getBlockX() >> 4, spawnLocation.getBlockZ() >> 4));
         } else {
           babyEntity.remove();
         }
@@ -1451,23 +1686,29 @@ public final class TrophicHerds extends JavaPlugin {
     }
 
     private boolean isEligibleParent(
+        World world,
         Mob member,
+        int index,
+        SpeciesScan scan,
         MobSettings settings,
         HerdCache cache,
         int currentTick) {
       if (member == null || !member.isValid()) {
         return false;
       }
-      if (!(member instanceof Ageable ageable) || !ageable.isAdult()) {
+      if (index < 0 || !scan.adults[index]) {
         return false;
       }
-      if (isInWater(member)) {
+      int blockX = (int) Math.floor(scan.xs[index]);
+      int blockY = (int) Math.floor(scan.ys[index]);
+      int blockZ = (int) Math.floor(scan.zs[index]);
+      if (isInWaterAt(world, blockX, blockY, blockZ)) {
         return false;
       }
       if (settings.reproduceNeedsWater && !hasWaterAccess(member, settings)) {
         return false;
       }
-      if (!isOnNaturalSurface(member.getLocation())) {
+      if (!isOnNaturalSurface(world, blockX, blockY, blockZ)) {
         return false;
       }
       int cooldown = settings.reproduceCooldownTicks;
@@ -1589,7 +1830,15 @@ public final class TrophicHerds extends JavaPlugin {
       if (world == null || location == null) {
         return false;
       }
-      var block = world.getBlockAt(location);
+      return isWalkableSurface(
+          world,
+          location.getBlockX(),
+          location.getBlockY(),
+          location.getBlockZ());
+    }
+
+    private boolean isWalkableSurface(World world, int x, int y, int z) {
+      var block = world.getBlockAt(x, y, z);
       var below = block.getRelative(org.bukkit.block.BlockFace.DOWN);
       return below.getType().isSolid()
           && block.isPassable()
@@ -1613,18 +1862,27 @@ public final class TrophicHerds extends JavaPlugin {
           || location.getBlock().getRelative(org.bukkit.block.BlockFace.DOWN).isLiquid();
     }
 
-    private boolean shouldMoveHerdAwayFromWater(HerdCluster cluster) {
+    private boolean shouldMoveHerdAwayFromWater(
+        World world,
+        HerdCluster cluster,
+        SpeciesScan scan) {
       if (cluster == null || cluster.members.isEmpty()) {
         return false;
       }
       int count = 0;
       int inWater = 0;
-      for (Mob member : cluster.members) {
-        if (member == null || !member.isValid()) {
+      for (int i = 0; i < cluster.members.size(); i++) {
+        Mob member = cluster.members.get(i);
+        int index = cluster.memberIndexes[i];
+        if (member == null || !member.isValid() || index < 0) {
           continue;
         }
         count++;
-        if (isInWater(member)) {
+        if (isInWaterAt(
+            world,
+            (int) Math.floor(scan.xs[index]),
+            (int) Math.floor(scan.ys[index]),
+            (int) Math.floor(scan.zs[index]))) {
           inWater++;
         }
       }
@@ -1642,69 +1900,55 @@ public final class TrophicHerds extends JavaPlugin {
       double originX = origin.getX();
       double originZ = origin.getZ();
       double y = origin.getY();
+      int blockY = (int) Math.floor(y);
       int samples = 12;
-      Location best = null;
+      int bestX = 0;
+      int bestZ = 0;
       int bestScore = Integer.MIN_VALUE;
       for (int i = 0; i < samples; i++) {
         double angle = (Math.PI * 2.0) * i / samples;
         int x = (int) Math.round(originX + Math.cos(angle) * awareness);
         int z = (int) Math.round(originZ + Math.sin(angle) * awareness);
-        Location candidate = new Location(world, x, y, z);
         int score = 0;
-        if (!isInWaterAt(world, candidate)) {
+        if (!isInWaterAt(world, x, blockY, z)) {
           score += 2;
         }
-        if (isWalkableSurface(world, candidate)) {
+        if (isWalkableSurface(world, x, blockY, z)) {
           score += 2;
         }
-        score -= hazardManager.scoreAt(candidate);
+        score -= hazardManager.scoreAt(world, x, z);
         if (score > bestScore) {
           bestScore = score;
-          best = candidate;
+          bestX = x;
+          bestZ = z;
         }
       }
-      return best;
+      return new Location(world, bestX, y, bestZ);
     }
 
-    private boolean isInWaterAt(World world, Location location) {
-      if (world == null || location == null) {
-        return false;
-      }
-      var block = world.getBlockAt(location);
+    private boolean isInWaterAt(World world, int x, int y, int z) {
+      var block = world.getBlockAt(x, y, z);
       return block.isLiquid()
           || block.getRelative(org.bukkit.block.BlockFace.DOWN).isLiquid();
     }
 
-    private boolean isOnNaturalSurface(Location location) {
-      if (location == null) {
-        return false;
-      }
-      var block = location.getBlock();
-      var below = block.getRelative(org.bukkit.block.BlockFace.DOWN);
-      if (!NATURAL_BREEDING_BLOCKS.contains(below.getType())) {
-        return false;
-      }
-      World world = location.getWorld();
+    private boolean isOnNaturalSurface(World world, int x, int y, int z) {
       if (world == null) {
         return false;
       }
-      int surfaceY = world.getHighestBlockYAt(location);
-      return below.getY() >= surfaceY - 1;
-    }
-
-    private Location averageLocation(Location a, Location b) {
-      if (a == null || b == null || a.getWorld() != b.getWorld()) {
-        return null;
+      int belowY = y - 1;
+      if (!NATURAL_BREEDING_BLOCKS.contains(world.getBlockAt(x, belowY, z).getType())) {
+        return false;
       }
-      Vector mid = a.toVector().add(b.toVector()).multiply(0.5);
-      return new Location(a.getWorld(), mid.getX(), mid.getY(), mid.getZ());
+      int surfaceY = world.getHighestBlockYAt(x, z);
+      return belowY >= surfaceY - 1;
     }
 
     private boolean isOverCap(
         Mob leader,
         MobSettings settings,
-        Map<Biome, Integer> biomeCounts,
-        Map<Long, Integer> chunkCounts) {
+        SpeciesScan scan,
+        int leaderIndex) {
       if (settings.softCapPerBiome <= 0 && settings.softCapPerChunk <= 0) {
         return false;
       }
@@ -1713,15 +1957,12 @@ public final class TrophicHerds extends JavaPlugin {
       }
       int biomeOver = 0;
       if (settings.softCapPerBiome > 0) {
-        Biome biome = leader.getLocation().getBlock().getBiome();
-        int count = biomeCounts.getOrDefault(biome, 0);
+        int count = scan.ledger.biomeCount(scan.biomeOrdinals[leaderIndex]);
         biomeOver = count - settings.softCapPerBiome;
       }
       int chunkOver = 0;
       if (settings.softCapPerChunk > 0) {
-        var chunk = leader.getLocation().getChunk();
-        long key = chunkKey(chunk.getX(), chunk.getZ());
-        int count = chunkCounts.getOrDefault(key, 0);
+        int count = scan.ledger.chunkCount(scan.chunkKeys[leaderIndex]);
         chunkOver = count - settings.softCapPerChunk;
       }
       return Math.max(biomeOver, chunkOver) > 0;
@@ -1743,8 +1984,8 @@ public final class TrophicHerds extends JavaPlugin {
         MobSettings settings,
         HerdCache cache,
         int currentTick,
-        Map<Biome, Integer> biomeCounts,
-        Map<Long, Integer> chunkCounts) {
+        SpeciesScan scan,
+        int leaderIndex) {
       if (settings.overcapIntervalTicks <= 0 || settings.overcapRemovalsPerInterval <= 0) {
         return CullPlan.none();
       }
@@ -1758,15 +1999,12 @@ public final class TrophicHerds extends JavaPlugin {
       }
       int biomeOver = 0;
       if (settings.softCapPerBiome > 0) {
-        Biome biome = leader.getLocation().getBlock().getBiome();
-        int count = biomeCounts.getOrDefault(biome, 0);
+        int count = scan.ledger.biomeCount(scan.biomeOrdinals[leaderIndex]);
         biomeOver = count - settings.softCapPerBiome;
       }
       int chunkOver = 0;
       if (settings.softCapPerChunk > 0) {
-        var chunk = leader.getLocation().getChunk();
-        long key = chunkKey(chunk.getX(), chunk.getZ());
-        int count = chunkCounts.getOrDefault(key, 0);
+        int count = scan.ledger.chunkCount(scan.chunkKeys[leaderIndex]);
         chunkOver = count - settings.softCapPerChunk;
       }
       int overcap = Math.max(biomeOver, chunkOver);
@@ -1802,65 +2040,62 @@ public final class TrophicHerds extends JavaPlugin {
         UUID leaderId,
         int removals,
         MobSettings settings,
-        Map<Biome, Integer> biomeCounts,
-        Map<Long, Integer> chunkCounts) {
+        SpeciesScan scan) {
       if (removals <= 0 || cluster.members.isEmpty()) {
         return 0;
       }
       int minHerdSize = settings.minHerdSize;
       int minBiomePopulation = settings.minBiomePopulation;
-      List<Mob> candidates = new ArrayList<>();
-      List<Mob> adultCandidates = new ArrayList<>();
-      for (Mob member : cluster.members) {
-        if (member == null || !member.isValid()) {
+      // Candidates are scan indexes, which stay put while culled members leave the cluster.
+      HerdSpatialHash.IntBucket candidates = new HerdSpatialHash.IntBucket();
+      HerdSpatialHash.IntBucket adultCandidates = new HerdSpatialHash.IntBucket();
+      int leaderIndex = -1;
+      for (int i = 0; i < cluster.members.size(); i++) {
+        Mob member = cluster.members.get(i);
+        int memberIndex = cluster.memberIndexes[i];
+        if (member == null || !member.isValid() || memberIndex < 0) {
           continue;
         }
         if (leaderId != null && leaderId.equals(member.getUniqueId())) {
+          leaderIndex = memberIndex;
           continue;
         }
-        candidates.add(member);
-        if (member instanceof Ageable ageable && ageable.isAdult()) {
-          adultCandidates.add(member);
+        candidates.add(memberIndex);
+        if (scan.adults[memberIndex]) {
+          adultCandidates.add(memberIndex);
         }
       }
-      if (candidates.isEmpty()
-          && leaderId != null
+      if (candidates.size == 0
+          && leaderIndex >= 0
           && cluster.members.size() - 1 >= minHerdSize) {
-        for (Mob member : cluster.members) {
-          if (member != null && member.isValid() && leaderId.equals(member.getUniqueId())) {
-            candidates.add(member);
-            if (member instanceof Ageable ageable && ageable.isAdult()) {
-              adultCandidates.add(member);
-            }
-            break;
-          }
+        candidates.add(leaderIndex);
+        if (scan.adults[leaderIndex]) {
+          adultCandidates.add(leaderIndex);
         }
       }
-      List<Mob> preferredCandidates = adultCandidates.isEmpty() ? candidates : adultCandidates;
+      HerdSpatialHash.IntBucket preferredCandidates =
+          adultCandidates.size == 0 ? candidates : adultCandidates;
       int removed = 0;
       while (removed < removals
           && cluster.members.size() > minHerdSize
-          && !preferredCandidates.isEmpty()) {
-        int index = random.nextInt(preferredCandidates.size());
-        Mob target = preferredCandidates.remove(index);
+          && preferredCandidates.size > 0) {
+        int pick = random.nextInt(preferredCandidates.size);
+        int targetIndex = preferredCandidates.items[pick];
+        preferredCandidates.items[pick] = preferredCandidates.items[--preferredCandidates.size];
+        Mob target = scan.mobs.get(targetIndex);
         if (target == null || !target.isValid()) {
           continue;
         }
-        Location location = target.getLocation();
-        Biome biome = location.getBlock().getBiome();
-        int biomeCount = biomeCounts.getOrDefault(biome, 0);
-        if (minBiomePopulation > 0 && biomeCount <= minBiomePopulation) {
+        int biomeOrdinal = scan.biomeOrdinals[targetIndex];
+        if (minBiomePopulation > 0 && scan.ledger.biomeCount(biomeOrdinal) <= minBiomePopulation) {
           continue;
         }
         if (settings.cullPlayDeathSound) {
-          playCullDeathSound(target, location);
+          playCullDeathSound(target, target.getLocation());
         }
-        biomeCounts.computeIfPresent(biome, (key, value) -> Math.max(0, value - 1));
-        var chunk = location.getChunk();
-        long key = chunkKey(chunk.getX(), chunk.getZ());
-        chunkCounts.computeIfPresent(key, (k, value) -> Math.max(0, value - 1));
+        scan.ledger.remove(biomeOrdinal, scan.chunkKeys[targetIndex]);
         cullMob(target);
-        cluster.members.remove(target);
+        cluster.remove(target);
         removed++;
       }
       return removed;
@@ -1983,155 +2218,1332 @@ public final class TrophicHerds extends JavaPlugin {
     }
   }
 
-  private static final class HerdCache {
-    private Map<UUID, UUID> memberToLeader = new HashMap<>();
-    private Map<UUID, Integer> leaderFollowerCounts = new HashMap<>();
-    private Map<UUID, PredatorThreatState> lastThreats = new HashMap<>();
-    private Map<UUID, Integer> lastGrazeTicks = new HashMap<>();
-    private Map<UUID, Integer> lastCullTicks = new HashMap<>();
-    private Map<UUID, Integer> lastMemberWanderTicks = new HashMap<>();
-    private Map<UUID, Integer> lastReproduceTicks = new HashMap<>();
-    private List<HerdSnapshot> snapshots = List.of();
-    private int lastUpdateTick;
-  }
-
-  private enum CullReason {
-    SOFT_CAP_BIOME,
-    SOFT_CAP_CHUNK
-  }
-
-  private static final class CullPlan {
-    private final int removals;
-    private final CullReason reason;
-
-    private CullPlan(int removals, CullReason reason) {
-      this.removals = removals;
-      this.reason = reason;
-    }
-
-    private static CullPlan none() {
-      return new CullPlan(0, CullReason.SOFT_CAP_BIOME);
+  private static final class HerdUpdatePass {
+    private final World world;
+    private final MobTypeConfig<? extends Mob> config;
+    private final HerdCache cache;
+    private final SpeciesScan scan;
+    private final int scheduledTick;
+    private final DebugSink debugSink;
+    private final Map<UUID, UUID> memberToLeader = new HashMap<>();
+    private final Map<UUID, List<Mob>> leaderMembers = new HashMap<>();
+    private final Map<UUID, Integer> leaderFollowerCounts = new HashMap<>();
+    private final List<HerdSnapshot> snapshots = new ArrayList<>();
+    private Map<UUID, Integer> previousLeaderCounts = Map.of();
+    private java.util.concurrent.CompletableFuture<List<HerdUnit>> plan;
+    private List<HerdUnit> units;
+    private int nextUnit;
+    private boolean day;
+    private boolean resolveThreats;
+    private boolean grazing;
+    private double moveSpeed;
+
+    private HerdUpdatePass(
+        World world,
+        MobTypeConfig<? extends Mob> config,
+        HerdCache cache,
+        SpeciesScan scan,
+        int scheduledTick,
+        DebugSink debugSink) {
+      this.world = world;
+      this.config = config;
+      this.cache = cache;
+      this.scan = scan;
+      this.scheduledTick = scheduledTick;
+      this.debugSink = debugSink;
     }
-  }
-
-  private static final class HerdCluster {
-    private final List<Mob> members;
 
-    private HerdCluster(List<Mob> members) {
-      this.members = members;
+    private int remainingUnits() {
+      if (units == null) {
+        return 1;
+      }
+      return units.size() - nextUnit + 1;
     }
-  }
-
-  private static final class HerdSnapshot {
-    private final EntityType entityType;
-    private final UUID leaderId;
-    private final Location leaderLocation;
-    private final int population;
-    private final Biome biome;
 
-    private HerdSnapshot(
-        EntityType entityType,
-        UUID leaderId,
-        Location leaderLocation,
-        int population,
-        Biome biome) {
-      this.entityType = entityType;
-      this.leaderId = leaderId;
-      this.leaderLocation = leaderLocation;
-      this.population = population;
-      this.biome = biome;
+    private boolean hasDueUnit(int currentTick) {
+      if (units == null) {
+        return plan == null || plan.isDone();
+      }
+      if (nextUnit >= units.size()) {
+        return true;
+      }
+      return units.get(nextUnit).dueTick <= currentTick;
     }
-  }
-
-  private static final class PredatorThreat {
-    private final Location predatorLocation;
 
-    private PredatorThreat(Location predatorLocation) {
-      this.predatorLocation = predatorLocation;
+    private int lagTicks(int currentTick) {
+      if (units == null) {
+        return currentTick - scheduledTick;
+      }
+      if (nextUnit >= units.size()) {
+        return 0;
+      }
+      return Math.max(0, currentTick - units.get(nextUnit).dueTick);
     }
   }
 
-  private static final class PredatorThreatState {
-    private final Location predatorLocation;
-    private final int lastSeenTick;
-
-    private PredatorThreatState(Location predatorLocation, int lastSeenTick) {
-      this.predatorLocation = predatorLocation;
-      this.lastSeenTick = lastSeenTick;
+  private static final class HerdUnit {
+    private final HerdCluster cluster;
+    private final Mob leader;
+    private final int leaderIndex;
+    private final int dueTick;
+    private final Map<UUID, Location> memberWanderTargets = new HashMap<>();
+    private Location leaderWanderTarget;
+
+    private HerdUnit(HerdCluster cluster, Mob leader, int leaderIndex, int dueTick) {
+      this.cluster = cluster;
+      this.leader = leader;
+      this.leaderIndex = leaderIndex;
+      this.dueTick = dueTick;
     }
   }
 
-  private final class HazardManager {
-    private static final int REGION_CHUNK_SIZE = 4;
-    private static final int REGION_BLOCK_SIZE = REGION_CHUNK_SIZE * 16;
-    private static final int SAMPLE_SPACING = 8;
-    private static final int GRID_SIZE = REGION_BLOCK_SIZE / SAMPLE_SPACING;
-    private static final int REGION_CACHE_MAX_ENTRIES = 512;
-    private static final int REGION_STALE_TICKS = 20 * 60;
-    private static final int REGION_REFRESH_BATCH = 2;
-    private static final int CLIFF_HEIGHT_DELTA = 4;
-    private static final int CAVE_SAMPLE_DEPTH_MIN = 6;
-    private static final int CAVE_SAMPLE_DEPTH_MAX = 14;
-    private static final int MUST_AVOID_SCORE = 100;
-    private static final int CAVE_SCORE = 20;
-
-    private final Map<RegionKey, RegionHazardMap> cache = new HashMap<>();
-    private final Deque<RegionKey> refreshQueue = new ArrayDeque<>();
-    private final java.util.Set<RegionKey> queuedRegions = new java.util.HashSet<>();
+  private final class HerdScheduler {
+    private final Deque<HerdUpdatePass> queue = new ArrayDeque<>();
+    private int lastUnitLagTicks;
+    private long completedPasses;
 
-    private void refreshCaches() {
+    private void tick() {
       int currentTick = Bukkit.getCurrentTick();
+      long budgetNanos = settings.herdTickBudgetNanos;
+      long start = System.nanoTime();
       for (World world : Bukkit.getWorlds()) {
-        for (Chunk chunk : world.getLoadedChunks()) {
-          RegionKey key = RegionKey.fromChunk(world, chunk.getX(), chunk.getZ());
-          RegionHazardMap existing = cache.get(key);
-          if (existing == null || currentTick - existing.lastUpdatedTick > REGION_STALE_TICKS) {
-            enqueueRegion(key);
-          }
-        }
-      }
-      for (int i = 0; i < REGION_REFRESH_BATCH; i++) {
-        RegionKey key = refreshQueue.pollFirst();
-        if (key == null) {
+        if (budgetNanos > 0 && !queue.isEmpty() && System.nanoTime() - start >= budgetNanos) {
           break;
         }
-        queuedRegions.remove(key);
-        World world = Bukkit.getWorld(key.worldId);
-        if (world == null) {
-          continue;
+        queue.addAll(herdManager.createDuePasses(
+            world,
+            currentTick,
+            TrophicHerds.this::logCullingEvent));
+      }
+      boolean ranUnit = false;
+      java.util.Iterator<HerdUpdatePass> iterator = queue.iterator();
+      while (iterator.hasNext()) {
+        HerdUpdatePass pass = iterator.next();
+        while (pass.hasDueUnit(currentTick)) {
+          if (ranUnit && budgetNanos > 0 && System.nanoTime() - start >= budgetNanos) {
+            return;
+          }
+          ranUnit = true;
+          if (runUnit(pass, currentTick)) {
+            iterator.remove();
+            break;
+          }
         }
-        RegionHazardMap refreshed = buildRegionHazardMap(world, key, currentTick);
-        cache.put(key, refreshed);
       }
-      pruneCache(currentTick);
     }
 
-    private void enqueueRegion(RegionKey key) {
-      if (key == null) {
-        return;
-      }
-      if (queuedRegions.add(key)) {
-        refreshQueue.addLast(key);
+    private void runWorldNow(World world) {
+      int currentTick = Bukkit.getCurrentTick();
+      queue.addAll(herdManager.createDuePasses(
+          world,
+          currentTick,
+          TrophicHerds.this::logCullingEvent));
+      java.util.Iterator<HerdUpdatePass> iterator = queue.iterator();
+      while (iterator.hasNext()) {
+        HerdUpdatePass pass = iterator.next();
+        if (pass.world != world) {
+          continue;
+        }
+        boolean finished = false;
+        while (!finished) {
+          finished = runUnit(pass, currentTick);
+        }
+        iterator.remove();
       }
     }
 
-    private int scoreAt(Location location) {
-      if (location == null) {
-        return 0;
+    private boolean runUnit(HerdUpdatePass pass, int currentTick) {
+      if (pass.plan == null) {
+        herdManager.preparePass(pass);
+        return false;
       }
-      World world = location.getWorld();
+      if (pass.units == null) {
+        pass.units = herdManager.collectPlan(pass);
+        return false;
+      }
+      if (pass.nextUnit < pass.units.size()) {
+        HerdUnit unit = pass.units.get(pass.nextUnit++);
+        lastUnitLagTicks = Math.max(0, currentTick - unit.dueTick);
+        herdManager.updateHerd(pass, unit, currentTick);
+        herdMovement.flush();
+        return false;
+      }
+      herdManager.finishPass(pass);
+      completedPasses++;
+      return true;
+    }
+
+    private int pendingPasses() {
+      return queue.size();
+    }
+
+    private int pendingUnits() {
+      int units = 0;
+      for (HerdUpdatePass pass : queue) {
+        units += pass.remainingUnits();
+      }
+      return units;
+    }
+
+    private int oldestLagTicks(int currentTick) {
+      int lag = 0;
+      for (HerdUpdatePass pass : queue) {
+        lag = Math.max(lag, pass.lagTicks(currentTick));
+      }
+      return lag;
+    }
+  }
+
+  private static final class HerdCache {
+    private Map<UUID, UUID> memberToLeader = new HashMap<>();
+    private Map<UUID, List<Mob>> leaderMembers = new HashMap<>();
+    private Map<UUID, Integer> leaderFollowerCounts = new HashMap<>();
+    private Map<UUID, PredatorThreatState> lastThreats = new HashMap<>();
+    private Map<UUID, Integer> lastGrazeTicks = new HashMap<>();
+    private Map<UUID, Integer> lastCullTicks = new HashMap<>();
+    private Map<UUID, Integer> lastMemberWanderTicks = new HashMap<>();
+    private Map<UUID, Integer> lastReproduceTicks = new HashMap<>();
+    private Map<UUID, Integer> lastImmediateFleeTicks = new HashMap<>();
+    private List<HerdSnapshot> snapshots = List.of();
+    private final SpeciesScan scan = new SpeciesScan();
+    private HerdGraph<Mob> herdGraph;
+    private HerdUpdatePass activePass;
+    private int lastUpdateTick;
+  }
+
+  private final class HerdAnimalRegistry {
+    private final Map<UUID, EnumMap<EntityType, SpeciesIndex>> worlds = new HashMap<>();
+
+    private void seedLoadedWorlds() {
+      for (World world : Bukkit.getWorlds()) {
+        for (MobTypeConfig<? extends Mob> config : settings.mobConfigs.values()) {
+          for (Mob mob : world.getEntitiesByClass(config.entityClass)) {
+            track(mob);
+          }
+        }
+      }
+    }
+
+    private void track(Entity entity) {
+      if (!(entity instanceof Mob mob) || settings == null) {
+        return;
+      }
+      if (!settings.mobConfigs.containsKey(mob.getType())) {
+        return;
+      }
+      getIndex(mob.getWorld(), mob.getType()).mobs.put(mob.getUniqueId(), mob);
+    }
+
+    private void untrack(Entity entity) {
+      if (!(entity instanceof Mob mob) || settings == null) {
+        return;
+      }
+      EnumMap<EntityType, SpeciesIndex> indexes = worlds.get(mob.getWorld().getUID());
+      if (indexes == null) {
+        return;
+      }
+      SpeciesIndex index = indexes.get(mob.getType());
+      if (index != null) {
+        index.mobs.remove(mob.getUniqueId());
+      }
+    }
+
+    private void scan(World world, EnumMap<EntityType, SpeciesScan> buckets) {
+      EnumMap<EntityType, SpeciesIndex> indexes = worlds.get(world.getUID());
+      if (indexes == null) {
+        return;
+      }
+      Location location = new Location(world, 0.0, 0.0, 0.0);
+      for (Map.Entry<EntityType, SpeciesIndex> entry : indexes.entrySet()) {
+        SpeciesScan bucket = buckets.get(entry.getKey());
+        if (bucket == null) {
+          continue;
+        }
+        SpeciesIndex index = entry.getValue();
+        for (Mob mob : index.mobs.values()) {
+          if (mob == null || !mob.isValid()) {
+            continue;
+          }
+          mob.getLocation(location);
+          int chunkX = location.getBlockX() >> 4;
+          int chunkZ = location.getBlockZ() >> 4;
+          Biome biome = bucket.ledger.countBiomes
+              ? biomeCache.biomeAt(
+                  world,
+                  location.getBlockX(),
+                  location.getBlockY(),
+                  location.getBlockZ())
+              : null;
+          bucket.add(mob, location, biome, chunkKey(chunkX, chunkZ));
+        }
+      }
+    }
+
+    private SpeciesIndex getIndex(World world, EntityType type) {
+      return worlds
+          .computeIfAbsent(world.getUID(), ignored -> new EnumMap<>(EntityType.class))
+          .computeIfAbsent(type, ignored -> new SpeciesIndex());
+    }
+
+    private void forgetWorld(World world) {
+      if (world != null) {
+        worlds.remove(world.getUID());
+      }
+    }
+  }
+
+  private final class ThreatField {
+    private static final int MIN_SWEEP_PER_TICK = 64;
+    private static final int FULL_SWEEP_TICKS = 20;
+    private final Map<UUID, Map<Long, List<TrackedPredator>>> coverage = new HashMap<>();
+    private final Map<UUID, TrackedPredator> byId = new HashMap<>();
+    private final List<TrackedPredator> tracked = new ArrayList<>();
+    private final Location scratch = new Location(null, 0.0, 0.0, 0.0);
+    private int coverageRadius;
+    private int sweepCursor;
+
+    private void seedLoadedWorlds() {
+      double maxAwareness = 0.0;
+      for (MobTypeConfig<? extends Mob> config : settings.mobConfigs.values()) {
+        maxAwareness = Math.max(maxAwareness, config.settings.awarenessDistance);
+      }
+      // One extra chunk absorbs the lag between a mob crossing a chunk and the sweep noticing.
+      coverageRadius = (int) Math.ceil(maxAwareness / 16.0) + 1;
+      for (World world : Bukkit.getWorlds()) {
+        for (Entity entity : world.getEntities()) {
+          track(entity);
+        }
+      }
+    }
+
+    private void track(Entity entity) {
+      if (entity instanceof Player player) {
+        update(entity, isSurvivalPlayer(player));
+      } else {
+        update(entity, true);
+      }
+    }
+
+    private void update(Entity entity, boolean eligible) {
+      if (entity == null || settings == null) {
+        return;
+      }
+      Integer bit = settings.predatorBits.get(entity.getType());
+      if (!eligible || bit == null) {
+        untrack(entity);
+        return;
+      }
+      entity.getLocation(scratch);
+      moveTo(entity, bit, entity.getWorld(), scratch.getBlockX() >> 4, scratch.getBlockZ() >> 4);
+    }
+
+    private void moveTo(Entity entity, int bit, World world, int chunkX, int chunkZ) {
+      UUID worldId = world.getUID();
+      TrackedPredator predator = byId.get(entity.getUniqueId());
+      if (predator == null) {
+        predator = new TrackedPredator(entity, 1L << bit, worldId, chunkX, chunkZ, tracked.size());
+        byId.put(entity.getUniqueId(), predator);
+        tracked.add(predator);
+        stamp(predator);
+        return;
+      }
+      if (predator.chunkX == chunkX
+          && predator.chunkZ == chunkZ
+          && predator.worldId.equals(worldId)) {
+        return;
+      }
+      unstamp(predator);
+      predator.worldId = worldId;
+      predator.chunkX = chunkX;
+      predator.chunkZ = chunkZ;
+      stamp(predator);
+    }
+
+    private void untrack(Entity entity) {
+      if (entity == null) {
+        return;
+      }
+      TrackedPredator predator = byId.remove(entity.getUniqueId());
+      if (predator == null) {
+        return;
+      }
+      unstamp(predator);
+      TrackedPredator last = tracked.remove(tracked.size() - 1);
+      if (last != predator) {
+        tracked.set(predator.slot, last);
+        last.slot = predator.slot;
+      }
+    }
+
+    // Players are never swept, so every move, teleport and respawn lands here and is checked
+    // against the chunk the player is stamped in; moveTo ignores same-chunk updates.
+    private void onPlayerMove(Player player, Location to) {
+      if (to == null || to.getWorld() == null) {
+        return;
+      }
+      TrackedPredator predator = byId.get(player.getUniqueId());
+      if (predator == null) {
+        return;
+      }
+      moveTo(
+          player,
+          Long.numberOfTrailingZeros(predator.bit),
+          to.getWorld(),
+          to.getBlockX() >> 4,
+          to.getBlockZ() >> 4);
+    }
+
+    // Mobs don't get a cheap chunk-crossing event, so a slice of tracked predators is
+    // re-read every tick and the whole set is reconciled within FULL_SWEEP_TICKS.
+    private void sweep() {
+      int budget = Math.max(MIN_SWEEP_PER_TICK, tracked.size() / FULL_SWEEP_TICKS + 1);
+      for (int i = 0; i < budget && !tracked.isEmpty(); i++) {
+        if (sweepCursor >= tracked.size()) {
+          sweepCursor = 0;
+        }
+        TrackedPredator predator = tracked.get(sweepCursor);
+        Entity entity = predator.entity;
+        if (!entity.isValid()) {
+          untrack(entity);
+          continue;
+        }
+        if (!(entity instanceof Player)) {
+          entity.getLocation(scratch);
+          moveTo(
+              entity,
+              Long.numberOfTrailingZeros(predator.bit),
+              entity.getWorld(),
+              scratch.getBlockX() >> 4,
+              scratch.getBlockZ() >> 4);
+        }
+        sweepCursor++;
+      }
+    }
+
+    private PredatorThreat nearestThreat(Mob leader, MobSettings settings, long predatorMask) {
+      double awareness = settings.awarenessDistance;
+      if (predatorMask == 0L || awareness <= 0.0) {
+        return null;
+      }
+      World world = leader.getWorld();
+      Map<Long, List<TrackedPredator>> chunks = coverage.get(world.getUID());
+      if (chunks == null) {
+        return null;
+      }
+      Location leaderLocation = leader.getLocation();
+      List<TrackedPredator> nearby = chunks.get(
+          chunkKey(leaderLocation.getBlockX() >> 4, leaderLocation.getBlockZ() >> 4));
+      if (nearby == null) {
+        return null;
+      }
+      double bestDistanceSq = awareness * awareness;
+      double panicRangeSq = settings.panicRange * settings.panicRange;
+      Entity best = null;
+      double bestX = 0.0;
+      double bestY = 0.0;
+      double bestZ = 0.0;
+      for (TrackedPredator predator : nearby) {
+        if ((predator.bit & predatorMask) == 0L) {
+          continue;
+        }
+        Entity entity = predator.entity;
+        if (!entity.isValid() || !settings.predators.contains(entity.getType())) {
+          continue;
+        }
+        if (entity instanceof Player player && player.isDead()) {
+          herdManager.logIgnoredPredator(player, "threat field lookup");
+          continue;
+        }
+        entity.getLocation(scratch);
+        double dx = scratch.getX() - leaderLocation.getX();
+        double dy = scratch.getY() - leaderLocation.getY();
+        double dz = scratch.getZ() - leaderLocation.getZ();
+        double distanceSq = dx * dx + dy * dy + dz * dz;
+        if (distanceSq > bestDistanceSq) {
+          continue;
+        }
+        bestDistanceSq = distanceSq;
+        best = entity;
+        bestX = scratch.getX();
+        bestY = scratch.getY();
+        bestZ = scratch.getZ();
+        if (panicRangeSq > 0.0 && distanceSq <= panicRangeSq) {
+          break;
+        }
+      }
+      if (best == null) {
+        return null;
+      }
+      return new PredatorThreat(new Location(world, bestX, bestY, bestZ));
+    }
+
+    private void stamp(TrackedPredator predator) {
+      Map<Long, List<TrackedPredator>> chunks =
+          coverage.computeIfAbsent(predator.worldId, ignored -> new HashMap<>());
+      for (int dx = -coverageRadius; dx <= coverageRadius; dx++) {
+        for (int dz = -coverageRadius; dz <= coverageRadius; dz++) {
+          chunks
+              .computeIfAbsent(
+                  chunkKey(predator.chunkX + dx, predator.chunkZ + dz),
+                  ignored -> new ArrayList<>(2))
+              .add(predator);
+        }
+      }
+    }
+
+    private void unstamp(TrackedPredator predator) {
+      Map<Long, List<TrackedPredator>> chunks = coverage.get(predator.worldId);
+      if (chunks == null) {
+        return;
+      }
+      for (int dx = -coverageRadius; dx <= coverageRadius; dx++) {
+        for (int dz = -coverageRadius; dz <= coverageRadius; dz++) {
+          long key = chunkKey(predator.chunkX + dx, predator.chunkZ + dz);
+          List<TrackedPredator> covering = chunks.get(key);
+          if (covering != null && covering.remove(predator) && covering.isEmpty()) {
+            chunks.remove(key);
+          }
+        }
+      }
+    }
+
+    private void forgetWorld(World world) {
+      if (world == null) {
+        return;
+      }
+      UUID worldId = world.getUID();
+      coverage.remove(worldId);
+      for (int i = tracked.size() - 1; i >= 0; i--) {
+        TrackedPredator predator = tracked.get(i);
+        if (predator.worldId.equals(worldId)) {
+          untrack(predator.entity);
+        }
+      }
+    }
+  }
+
+  private static final class TrackedPredator {
+    private final Entity entity;
+    private final long bit;
+    private UUID worldId;
+    private int chunkX;
+    private int chunkZ;
+    private int slot;
+
+    private TrackedPredator(
+        Entity entity,
+        long bit,
+        UUID worldId,
+        int chunkX,
+        int chunkZ,
+        int slot) {
+      this.entity = entity;
+      this.bit = bit;
+      this.worldId = worldId;
+      this.chunkX = chunkX;
+      this.chunkZ = chunkZ;
+      this.slot = slot;
+    }
+  }
+
+  private static final class BiomeCache {
+    private static final Biome[] BIOMES = Biome.values();
+    private final Map<UUID, Map<Long, short[]>> worlds = new HashMap<>();
+    private UUID lastWorldId;
+    private long lastChunk;
+    private short[] lastCells;
+
+    private Biome biomeAt(World world, int x, int y, int z) {
+      int minY = world.getMinHeight();
+      int maxY = world.getMaxHeight() - 1;
+      int clampedY = Math.max(minY, Math.min(maxY, y));
+      short[] cells = cellsFor(world, x >> 4, z >> 4, minY, maxY);
+      int index =
+          (((clampedY - minY) >> 2) << 4) | (((z & 15) >> 2) << 2) | ((x & 15) >> 2);
+      short cached = cells[index];
+      if (cached != 0) {
+        return BIOMES[cached - 1];
+      }
+      Biome biome = world.getBiome(x, clampedY, z);
+      cells[index] = (short) (biome.ordinal() + 1);
+      return biome;
+    }
+
+    private short[] cellsFor(World world, int chunkX, int chunkZ, int minY, int maxY) {
+      UUID worldId = world.getUID();
+      long chunk = chunkKey(chunkX, chunkZ);
+      if (lastCells != null && chunk == lastChunk && worldId.equals(lastWorldId)) {
+        return lastCells;
+      }
+      short[] cells = worlds
+          .computeIfAbsent(worldId, ignored -> new HashMap<>())
+          .computeIfAbsent(chunk, ignored -> new short[(((maxY - minY) >> 2) + 1) << 4]);
+      lastWorldId = worldId;
+      lastChunk = chunk;
+      lastCells = cells;
+      return cells;
+    }
+
+    private void evictChunk(World world, int chunkX, int chunkZ) {
+      Map<Long, short[]> chunks = worlds.get(world.getUID());
+      if (chunks == null) {
+        return;
+      }
+      long chunk = chunkKey(chunkX, chunkZ);
+      if (chunks.remove(chunk) != null && chunk == lastChunk) {
+        lastCells = null;
+      }
+    }
+
+    private void forgetWorld(World world) {
+      if (world == null) {
+        return;
+      }
+      worlds.remove(world.getUID());
+      if (world.getUID().equals(lastWorldId)) {
+        lastCells = null;
+      }
+    }
+  }
+
+  private static final class SpeciesIndex {
+    private final Map<UUID, Mob> mobs = new LinkedHashMap<>();
+  }
+
+  private static final class SpeciesScan {
+    private final List<Mob> mobs = new ArrayList<>();
+    private final PopulationLedger ledger = new PopulationLedger(BiomeCache.BIOMES.length);
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private long[] chunkKeys = new long[16];
+    private int[] biomeOrdinals = new int[16];
+    private boolean[] adults = new boolean[16];
+    private int size;
+
+    private void reset(boolean censusBiomes, boolean censusChunks) {
+      mobs.clear();
+      ledger.reset(censusBiomes, censusChunks);
+      size = 0;
+    }
+
+    private void add(Mob mob, Location location, Biome biome, long chunkKey) {
+      if (size == xs.length) {
+        int capacity = size * 2;
+        xs = java.util.Arrays.copyOf(xs, capacity);
+        ys = java.util.Arrays.copyOf(ys, capacity);
+        zs = java.util.Arrays.copyOf(zs, capacity);
+        chunkKeys = java.util.Arrays.copyOf(chunkKeys, capacity);
+        biomeOrdinals = java.util.Arrays.copyOf(biomeOrdinals, capacity);
+        adults = java.util.Arrays.copyOf(adults, capacity);
+      }
+      mobs.add(mob);
+      xs[size] = location.getX();
+      ys[size] = location.getY();
+      zs[size] = location.getZ();
+      chunkKeys[size] = chunkKey;
+      biomeOrdinals[size] = biome == null ? -1 : biome.ordinal();
+      adults[size] = mob instanceof Ageable ageable && ageable.isAdult();
+      size++;
+      ledger.add(biomeOrdinals[size - 1], chunkKey);
+    }
+
+    private void updatePosition(int index, Location location) {
+      xs[index] = location.getX();
+      ys[index] = location.getY();
+      zs[index] = location.getZ();
+    }
+
+    private Biome biome(int index) {
+      return BiomeCache.BIOMES[biomeOrdinals[index]];
+    }
+
+    private double distanceSq(int a, int b) {
+      double dx = xs[a] - xs[b];
+      double dy = ys[a] - ys[b];
+      double dz = zs[a] - zs[b];
+      return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double distanceSq(int index, Location target) {
+      double dx = xs[index] - target.getX();
+      double dy = ys[index] - target.getY();
+      double dz = zs[index] - target.getZ();
+      return dx * dx + dy * dy + dz * dz;
+    }
+  }
+
+  private static final class PopulationLedger {
+    private final int[] biomeCounts;
+    private boolean countBiomes;
+    private boolean countChunks;
+    private long[] chunkKeys = new long[64];
+    private int[] chunkCounts = new int[64];
+    private boolean[] chunkUsed = new boolean[64];
+    private int chunkSize;
+
+    private PopulationLedger(int biomes) {
+      this.biomeCounts = new int[biomes];
+    }
+
+    private void reset(boolean countBiomes, boolean countChunks) {
+      this.countBiomes = countBiomes;
+      this.countChunks = countChunks;
+      java.util.Arrays.fill(biomeCounts, 0);
+      if (chunkSize > 0) {
+        java.util.Arrays.fill(chunkUsed, false);
+        chunkSize = 0;
+      }
+    }
+
+    private void add(int biomeOrdinal, long chunkKey) {
+      if (countBiomes && biomeOrdinal >= 0) {
+        biomeCounts[biomeOrdinal]++;
+      }
+      if (!countChunks) {
+        return;
+      }
+      if ((chunkSize + 1) * 2 > chunkKeys.length) {
+        growChunks();
+      }
+      int slot = chunkSlot(chunkKey);
+      if (!chunkUsed[slot]) {
+        chunkUsed[slot] = true;
+        chunkKeys[slot] = chunkKey;
+        chunkCounts[slot] = 0;
+        chunkSize++;
+      }
+      chunkCounts[slot]++;
+    }
+
+    private void remove(int biomeOrdinal, long chunkKey) {
+      if (biomeOrdinal >= 0 && biomeCounts[biomeOrdinal] > 0) {
+        biomeCounts[biomeOrdinal]--;
+      }
+      if (!countChunks) {
+        return;
+      }
+      int slot = chunkSlot(chunkKey);
+      if (chunkUsed[slot] && chunkCounts[slot] > 0) {
+        chunkCounts[slot]--;
+      }
+    }
+
+    private int biomeCount(int biomeOrdinal) {
+      return biomeOrdinal < 0 ? 0 : biomeCounts[biomeOrdinal];
+    }
+
+    private int chunkCount(long chunkKey) {
+      int slot = chunkSlot(chunkKey);
+      return chunkUsed[slot] ? chunkCounts[slot] : 0;
+    }
+
+    private int chunkSlot(long chunkKey) {
+      int mask = chunkKeys.length - 1;
+      int slot = (int) (chunkKey * 0x9E3779B97F4A7C15L >>> 32) & mask;
+      while (chunkUsed[slot] && chunkKeys[slot] != chunkKey) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private void growChunks() {
+      long[] oldKeys = chunkKeys;
+      int[] oldCounts = chunkCounts;
+      boolean[] oldUsed = chunkUsed;
+      chunkKeys = new long[oldKeys.length * 2];
+      chunkCounts = new int[oldKeys.length * 2];
+      chunkUsed = new boolean[oldKeys.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (!oldUsed[i]) {
+          continue;
+        }
+        int slot = chunkSlot(oldKeys[i]);
+        chunkUsed[slot] = true;
+        chunkKeys[slot] = oldKeys[i];
+        chunkCounts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  private enum CullReason {
+    SOFT_CAP_BIOME,
+    SOFT_CAP_CHUNK
+  }
+
+  private static final class CullPlan {
+    private final int removals;
+    private final CullReason reason;
+
+    private CullPlan(int removals, CullReason reason) {
+      this.removals = removals;
+      this.reason = reason;
+    }
+
+    private static CullPlan none() {
+      return new CullPlan(0, CullReason.SOFT_CAP_BIOME);
+    }
+  }
+
+  private static final class HerdCluster {
+    private final List<Mob> members;
+    // Scan slot of each member, parallel to members; -1 for a cluster built outside a pass.
+    private int[] memberIndexes;
+
+    private HerdCluster(List<Mob> members) {
+      this(members, unscanned(members.size()));
+    }
+
+    private HerdCluster(List<Mob> members, int[] memberIndexes) {
+      this.members = members;
+      this.memberIndexes = memberIndexes;
+    }
+
+    private static int[] unscanned(int size) {
+      int[] indexes = new int[size];
+      java.util.Arrays.fill(indexes, -1);
+      return indexes;
+    }
+
+    private void removeInvalid() {
+      int kept = 0;
+      for (int i = 0; i < members.size(); i++) {
+        Mob member = members.get(i);
+        if (member != null && member.isValid()) {
+          members.set(kept, member);
+          memberIndexes[kept] = memberIndexes[i];
+          kept++;
+        }
+      }
+      members.subList(kept, members.size()).clear();
+    }
+
+    private void remove(Mob mob) {
+      int position = members.indexOf(mob);
+      if (position < 0) {
+        return;
+      }
+      members.remove(position);
+      System.arraycopy(
+          memberIndexes,
+          position + 1,
+          memberIndexes,
+          position,
+          members.size() - position);
+    }
+  }
+
+  private static final class HerdSnapshot {
+    private final EntityType entityType;
+    private final UUID leaderId;
+    private final Location leaderLocation;
+    private final int population;
+    private final Biome biome;
+
+    private HerdSnapshot(
+        EntityType entityType,
+        UUID leaderId,
+        Location leaderLocation,
+        int population,
+        Biome biome) {
+      this.entityType = entityType;
+      this.leaderId = leaderId;
+      this.leaderLocation = leaderLocation;
+      this.population = population;
+      this.biome = biome;
+    }
+  }
+
+  private final class HerdMovement {
+    private static final int PRIORITY_FOLLOW = 0;
+    private static final int PRIORITY_WANDER = 1;
+    private static final int PRIORITY_GRAZE = 2;
+    private static final int PRIORITY_WATER_ESCAPE = 3;
+    private static final int PRIORITY_FLEE = 4;
+    private static final double PATH_END_TOLERANCE_SQ = 1.5 * 1.5;
+    private final Map<Mob, MoveRequest> pending = new java.util.IdentityHashMap<>();
+    private final Map<UUID, Double> issuedSpeeds = new HashMap<>();
+    private long requestedPaths;
+    private long savedPaths;
+
+    private void request(Mob mob, Location target, double speed, int priority) {
+      if (mob == null || target == null) {
+        return;
+      }
+      requestedPaths++;
+      MoveRequest existing = pending.get(mob);
+      if (existing != null) {
+        savedPaths++;
+        if (existing.priority > priority) {
+          return;
+        }
+      }
+      pending.put(mob, new MoveRequest(target, speed, priority));
+    }
+
+    private void flush() {
+      if (pending.isEmpty()) {
+        return;
+      }
+      for (Map.Entry<Mob, MoveRequest> entry : pending.entrySet()) {
+        Mob mob = entry.getKey();
+        MoveRequest request = entry.getValue();
+        if (!mob.isValid()) {
+          continue;
+        }
+        var pathfinder = mob.getPathfinder();
+        if (isAlreadyHeading(mob, pathfinder.getCurrentPath(), request)) {
+          savedPaths++;
+          continue;
+        }
+        pathfinder.moveTo(request.target, request.speed);
+        issuedSpeeds.put(mob.getUniqueId(), request.speed);
+      }
+      pending.clear();
+    }
+
+    private boolean isAlreadyHeading(
+        Mob mob,
+        Pathfinder.PathResult path,
+        MoveRequest request) {
+      if (path == null) {
+        return false;
+      }
+      Double issuedSpeed = issuedSpeeds.get(mob.getUniqueId());
+      if (issuedSpeed == null || issuedSpeed != request.speed) {
+        return false;
+      }
+      Location end = path.getFinalPoint();
+      if (end == null || end.getWorld() != request.target.getWorld()) {
+        return false;
+      }
+      double dx = end.getX() - request.target.getX();
+      double dy = end.getY() - request.target.getY();
+      double dz = end.getZ() - request.target.getZ();
+      return dx * dx + dy * dy + dz * dz <= PATH_END_TOLERANCE_SQ;
+    }
+
+    private void forget(UUID mobId) {
+      issuedSpeeds.remove(mobId);
+    }
+  }
+
+  private static final class MoveRequest {
+    private final Location target;
+    private final double speed;
+    private final int priority;
+
+    private MoveRequest(Location target, double speed, int priority) {
+      this.target = target;
+      this.speed = speed;
+      this.priority = priority;
+    }
+  }
+
+  private static final class SteeringPoint {
+    private double x;
+    private double z;
+  }
+
+  private static final class PendingFlee {
+    private final Mob prey;
+    private final Location predatorLocation;
+    private final MobSettings settings;
+    private final HerdCache cache;
+
+    private PendingFlee(
+        Mob prey,
+        Location predatorLocation,
+        MobSettings settings,
+        HerdCache cache) {
+      this.prey = prey;
+      this.predatorLocation = predatorLocation;
+      this.settings = settings;
+      this.cache = cache;
+    }
+  }
+
+  private static final class PredatorThreat {
+    private final Location predatorLocation;
+
+    private PredatorThreat(Location predatorLocation) {
+      this.predatorLocation = predatorLocation;
+    }
+  }
+
+  private static final class PredatorThreatState {
+    private final Location predatorLocation;
+    private final int lastSeenTick;
+
+    private PredatorThreatState(Location predatorLocation, int lastSeenTick) {
+      this.predatorLocation = predatorLocation;
+      this.lastSeenTick = lastSeenTick;
+    }
+  }
+
+  private final class HazardManager {
+    private static final int REGION_CHUNK_SIZE = 4;
+    private static final int REGION_BLOCK_SIZE = REGION_CHUNK_SIZE * 16;
+    private static final int SAMPLE_SPACING = 8;
+    private static final int GRID_SIZE = REGION_BLOCK_SIZE / SAMPLE_SPACING;
+    private static final int REGION_CACHE_MAX_ENTRIES = 128;
+    private static final int REGION_SAFETY_NET_TICKS = 20 * 60 * 10;
+    private static final int REGION_IDLE_TICKS = 20 * 60 * 2;
+    private static final int REGION_REFRESH_BATCH = 16;
+    private static final int BUILD_THREADS = 2;
+    private static final int MAX_PENDING_BUILDS = 32;
+    private static final int CLIFF_HEIGHT_DELTA = 4;
+    private static final int CAVE_SAMPLE_DEPTH_MIN = 6;
+    private static final int CAVE_SAMPLE_DEPTH_MAX = 14;
+    private static final int WATER_PROBE_DEPTH = 3;
+    private static final int URGENT_BUILDS_PER_TICK = 2;
+    private static final int DIRTY_REBUILDS_PER_TICK = 2;
+    private static final long ALL_CELLS = -1L;
+    private static final int MUST_AVOID_SCORE = 100;
+    private static final int CAVE_SCORE = 20;
+
+    // Written by the hazard builders, so every map is published whole in a single put.
+    private final Map<RegionKey, RegionHazardMap> cache =
+        new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.Set<RegionKey> building =
+        java.util.concurrent.ConcurrentHashMap.newKeySet();
+    private final Deque<RegionKey> refreshQueue = new ArrayDeque<>();
+    private final java.util.Set<RegionKey> queuedRegions = new java.util.HashSet<>();
+    private final Deque<RegionKey> urgentQueue = new ArrayDeque<>();
+    private final java.util.Set<RegionKey> urgentRegions = new java.util.HashSet<>();
+    private long provisionalScores;
+    private long dirtyCellsRebuilt;
+    // Grid cells whose sample column changed since the region's map was built, one bit per
+    // cell (GRID_SIZE * GRID_SIZE == 64).
+    private final Map<RegionKey, Long> dirtyCells = new LinkedHashMap<>();
+    // Regions with at least one loaded chunk, plus a due-tick heap over them. Heap entries
+    // are never removed in place; one whose due tick no longer matches is skipped on poll.
+    private final Map<RegionKey, LoadedRegion> loadedRegions = new HashMap<>();
+    private final java.util.PriorityQueue<RegionDue> dueRegions =
+        new java.util.PriorityQueue<>((a, b) -> Integer.compare(a.dueTick, b.dueTick));
+
+    private void seedLoadedWorlds() {
+      for (World world : Bukkit.getWorlds()) {
+        for (Chunk chunk : world.getLoadedChunks()) {
+          trackChunk(world, chunk.getX(), chunk.getZ());
+        }
+      }
+    }
+
+    private void trackChunk(World world, int chunkX, int chunkZ) {
+      RegionKey key = RegionKey.fromChunk(world, chunkX, chunkZ);
+      LoadedRegion region = loadedRegions.get(key);
+      if (region == null) {
+        region = new LoadedRegion(key);
+        loadedRegions.put(key, region);
+        scheduleRegion(region, Bukkit.getCurrentTick());
+      }
+      region.loadedChunks++;
+      markChunkCellsMissing(world, key, chunkX, chunkZ);
+    }
+
+    // Regions are often built while their chunks are still loading; cells sampled from a
+    // chunk that was not loaded yet are holes, so resample them once the chunk arrives.
+    private void markChunkCellsMissing(World world, RegionKey key, int chunkX, int chunkZ) {
+      int chunkIndex = Math.floorMod(chunkX, REGION_CHUNK_SIZE)
+          + Math.floorMod(chunkZ, REGION_CHUNK_SIZE) * REGION_CHUNK_SIZE;
+      long missing = 0L;
+      if (building.contains(key)) {
+        for (int cell = 0; cell < GRID_SIZE * GRID_SIZE; cell++) {
+          if (chunkIndex(cell) == chunkIndex) {
+            missing |= 1L << cell;
+          }
+        }
+      } else {
+        RegionHazardMap map = cached(world, key);
+        if (map == null) {
+          return;
+        }
+        for (int cell = 0; cell < GRID_SIZE * GRID_SIZE; cell++) {
+          if (chunkIndex(cell) == chunkIndex && map.heights[cell] == Integer.MIN_VALUE) {
+            missing |= 1L << cell;
+          }
+        }
+      }
+      if (missing != 0L) {
+        dirtyCells.merge(key, missing, (a, b) -> a | b);
+      }
+    }
+
+    private void untrackChunk(World world, int chunkX, int chunkZ) {
+      RegionKey key = RegionKey.fromChunk(world, chunkX, chunkZ);
+      LoadedRegion region = loadedRegions.get(key);
+      if (region != null && --region.loadedChunks <= 0) {
+        loadedRegions.remove(key);
+      }
+    }
+
+    private void forgetWorld(World world) {
+      UUID worldId = world.getUID();
+      loadedRegions.keySet().removeIf(key -> key.worldId.equals(worldId));
+      cache.keySet().removeIf(key -> key.worldId.equals(worldId));
+      hazardAtlas.close(worldId);
+    }
+
+    private void scheduleRegion(LoadedRegion region, int dueTick) {
+      region.dueTick = dueTick;
+      dueRegions.add(new RegionDue(region, dueTick));
+    }
+
+    private void refreshCaches() {
+      int currentTick = Bukkit.getCurrentTick();
+      while (!dueRegions.isEmpty() && dueRegions.peek().dueTick <= currentTick) {
+        RegionDue due = dueRegions.poll();
+        LoadedRegion region = due.region;
+        if (region.dueTick != due.dueTick || loadedRegions.get(region.key) != region) {
+          continue;
+        }
+        RegionHazardMap existing = cached(Bukkit.getWorld(region.key.worldId), region.key);
+        if (isFresh(existing, currentTick)) {
+          scheduleRegion(region, existing.lastUpdatedTick + REGION_SAFETY_NET_TICKS + 1);
+          continue;
+        }
+        enqueueRegion(region.key);
+        scheduleRegion(region, currentTick + REGION_SAFETY_NET_TICKS + 1);
+      }
+      for (int i = 0; i < REGION_REFRESH_BATCH && building.size() < MAX_PENDING_BUILDS; i++) {
+        RegionKey key = refreshQueue.pollFirst();
+        if (key == null) {
+          break;
+        }
+        queuedRegions.remove(key);
+        World world = Bukkit.getWorld(key.worldId);
+        if (world == null || isFresh(cache.get(key), currentTick)) {
+          continue;
+        }
+        submitBuild(world, key, ALL_CELLS, null, currentTick);
+      }
+      pruneCache(currentTick);
+    }
+
+    private void prefetch(int currentTick) {
+      for (int i = 0; i < URGENT_BUILDS_PER_TICK && building.size() < MAX_PENDING_BUILDS; i++) {
+        RegionKey key = urgentQueue.pollFirst();
+        if (key == null) {
+          return;
+        }
+        urgentRegions.remove(key);
+        World world = Bukkit.getWorld(key.worldId);
+        if (world == null || isFresh(cache.get(key), currentTick)) {
+          continue;
+        }
+        submitBuild(world, key, ALL_CELLS, null, currentTick);
+      }
+      rebuildDirtyCells(currentTick);
+    }
+
+    private void markBlockChanged(Block block) {
+      int blockX = block.getX();
+      int blockZ = block.getZ();
+      int center = SAMPLE_SPACING / 2;
+      if (Math.floorMod(blockX, SAMPLE_SPACING) != center
+          || Math.floorMod(blockZ, SAMPLE_SPACING) != center) {
+        return;
+      }
+      RegionKey key = RegionKey.fromBlock(block.getWorld(), blockX, blockZ);
+      if (!cache.containsKey(key) && !building.contains(key)) {
+        hazardAtlas.invalidate(key);
+        return;
+      }
+      int gx = (blockX - key.regionX * REGION_BLOCK_SIZE) / SAMPLE_SPACING;
+      int gz = (blockZ - key.regionZ * REGION_BLOCK_SIZE) / SAMPLE_SPACING;
+      dirtyCells.merge(key, 1L << (gx + gz * GRID_SIZE), (a, b) -> a | b);
+    }
+
+    // Regions still being built keep their dirty bits: the in-flight build may have
+    // snapshotted the chunks before the change.
+    private void rebuildDirtyCells(int currentTick) {
+      if (dirtyCells.isEmpty()) {
+        return;
+      }
+      int submitted = 0;
+      var iterator = dirtyCells.entrySet().iterator();
+      while (iterator.hasNext()
+          && submitted < DIRTY_REBUILDS_PER_TICK
+          && building.size() < MAX_PENDING_BUILDS) {
+        Map.Entry<RegionKey, Long> entry = iterator.next();
+        RegionKey key = entry.getKey();
+        if (building.contains(key)) {
+          continue;
+        }
+        iterator.remove();
+        RegionHazardMap base = cache.get(key);
+        World world = Bukkit.getWorld(key.worldId);
+        if (world == null) {
+          continue;
+        }
+        if (base == null) {
+          hazardAtlas.invalidate(key);
+          continue;
+        }
+        long mask = entry.getValue();
+        dirtyCellsRebuilt += Long.bitCount(mask);
+        submitBuild(world, key, mask, base, currentTick);
+        submitted++;
+      }
+    }
+
+    // Falls back to the on-disk atlas, so an evicted or pre-restart region costs a page read
+    // rather than a rebuild.
+    private RegionHazardMap cached(World world, RegionKey key) {
+      RegionHazardMap map = cache.get(key);
+      if (map != null || world == null || building.contains(key)) {
+        return map;
+      }
+      map = hazardAtlas.load(key, world.getGameTime(), Bukkit.getCurrentTick());
+      if (map != null) {
+        cache.put(key, map);
+      }
+      return map;
+    }
+
+    private boolean isFresh(RegionHazardMap map, int currentTick) {
+      return map != null && currentTick - map.lastUpdatedTick <= REGION_SAFETY_NET_TICKS;
+    }
+
+    private void enqueueRegion(RegionKey key) {
+      if (key == null) {
+        return;
+      }
+      if (queuedRegions.add(key)) {
+        refreshQueue.addLast(key);
+      }
+    }
+
+    private void submitBuild(
+        World world,
+        RegionKey key,
+        long cells,
+        RegionHazardMap base,
+        int currentTick) {
+      java.util.concurrent.ExecutorService worker = hazardWorker;
+      if (worker == null || !building.add(key)) {
+        return;
+      }
+      ChunkSnapshot[] chunks = snapshotRegion(world, key, cells);
+      if (chunks == null) {
+        building.remove(key);
+        return;
+      }
+      long terrainStamp = base == null ? world.getGameTime() : base.terrainStamp;
+      int minY = world.getMinHeight();
+      int maxY = world.getMaxHeight() - 1;
+      try {
+        worker.execute(() -> {
+          try {
+            RegionHazardMap map = buildRegionHazardMap(
+                chunks, key, cells, base, minY, maxY, terrainStamp, currentTick);
+            cache.put(key, map);
+            hazardAtlas.store(map);
+          } finally {
+            building.remove(key);
+          }
+        });
+      } catch (java.util.concurrent.RejectedExecutionException ex) {
+        building.remove(key);
+      }
+    }
+
+    private int scoreAt(World world, int blockX, int blockZ) {
       if (world == null) {
         return 0;
       }
       int currentTick = Bukkit.getCurrentTick();
-      RegionKey key = RegionKey.fromBlock(world, location.getBlockX(), location.getBlockZ());
-      RegionHazardMap map = cache.get(key);
-      if (map == null || currentTick - map.lastUpdatedTick > REGION_STALE_TICKS) {
-        map = buildRegionHazardMap(world, key, currentTick);
-        cache.put(key, map);
+      RegionKey key = RegionKey.fromBlock(world, blockX, blockZ);
+      RegionHazardMap map = cached(world, key);
+      if (!isFresh(map, currentTick)) {
+        if (!settings.hazardBlockingMisses) {
+          if (!building.contains(key) && urgentRegions.add(key)) {
+            urgentQueue.addLast(key);
+          }
+          if (map == null) {
+            provisionalScores++;
+            return provisionalScore(world, key, blockX, blockZ);
+          }
+        } else {
+          ChunkSnapshot[] chunks = snapshotRegion(world, key, ALL_CELLS);
+          if (chunks == null) {
+            return 0;
+          }
+          map = buildRegionHazardMap(
+              chunks,
+              key,
+              ALL_CELLS,
+              null,
+              world.getMinHeight(),
+              world.getMaxHeight() - 1,
+              world.getGameTime(),
+              currentTick);
+          cache.put(key, map);
+          hazardAtlas.store(map);
+        }
       }
       map.lastAccessTick = currentTick;
-      return map.scoreAt(location.getBlockX(), location.getBlockZ());
+      return map.scoreAt(blockX, blockZ);
+    }
+
+    // Stands in for an unbuilt region: the edge sample of a built neighbour when the block
+    // sits beside it, otherwise a cliff and surface-water check from the loaded heightmap.
+    private int provisionalScore(World world, RegionKey key, int blockX, int blockZ) {
+      int localX = blockX - key.regionX * REGION_BLOCK_SIZE;
+      int localZ = blockZ - key.regionZ * REGION_BLOCK_SIZE;
+      int stepX = edgeStep(localX);
+      int stepZ = edgeStep(localZ);
+      if (stepX != 0) {
+        RegionHazardMap neighbour = cache.get(
+            new RegionKey(key.worldId, key.regionX + stepX, key.regionZ));
+        if (neighbour != null) {
+          return neighbour.scoreAt(blockX + stepX * SAMPLE_SPACING, blockZ);
+        }
+      }
+      if (stepZ != 0) {
+        RegionHazardMap neighbour = cache.get(
+            new RegionKey(key.worldId, key.regionX, key.regionZ + stepZ));
+        if (neighbour != null) {
+          return neighbour.scoreAt(blockX, blockZ + stepZ * SAMPLE_SPACING);
+        }
+      }
+      if (!world.isChunkLoaded(blockX >> 4, blockZ >> 4)) {
+        return 0;
+      }
+      int surfaceY =
+          world.getHighestBlockYAt(blockX, blockZ, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+      int score = 0;
+      if (world.getBlockAt(blockX, surfaceY, blockZ).getType() == Material.WATER) {
+        score += MUST_AVOID_SCORE;
+      }
+      int maxDelta = 0;
+      for (int side = 0; side < 4; side++) {
+        int offset = side < 2 ? SAMPLE_SPACING : -SAMPLE_SPACING;
+        int x = side % 2 == 0 ? blockX + offset : blockX;
+        int z = side % 2 == 0 ? blockZ : blockZ + offset;
+        maxDelta = Math.max(maxDelta, loadedHeightDelta(world, surfaceY, x, z));
+      }
+      if (maxDelta >= CLIFF_HEIGHT_DELTA) {
+        score += MUST_AVOID_SCORE;
+      }
+      return Math.min(127, score);
+    }
+
+    private int edgeStep(int local) {
+      if (local < SAMPLE_SPACING) {
+        return -1;
+      }
+      return local >= REGION_BLOCK_SIZE - SAMPLE_SPACING ? 1 : 0;
+    }
+
+    private int loadedHeightDelta(World world, int baseY, int blockX, int blockZ) {
+      if (!world.isChunkLoaded(blockX >> 4, blockZ >> 4)) {
+        return 0;
+      }
+      int surfaceY =
+          world.getHighestBlockYAt(blockX, blockZ, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+      return Math.abs(baseY - surfaceY);
     }
 
     private void pruneCache(int currentTick) {
@@ -2139,97 +3551,205 @@ public final class TrophicHerds extends JavaPlugin {
       if (cache.size() <= max) {
         return;
       }
+      // Regions with pending dirty cells stay: their atlas record predates the edit.
       List<RegionHazardMap> maps = new ArrayList<>(cache.values());
+      maps.removeIf(map -> dirtyCells.containsKey(map.key));
       maps.sort((a, b) -> Integer.compare(a.lastAccessTick, b.lastAccessTick));
       int removeCount = Math.max(0, cache.size() - max);
       for (int i = 0; i < removeCount && i < maps.size(); i++) {
         cache.remove(maps.get(i).key);
       }
-      cache.values().removeIf(map -> currentTick - map.lastAccessTick > REGION_STALE_TICKS * 2);
+      cache.values().removeIf(map -> currentTick - map.lastAccessTick > REGION_IDLE_TICKS
+          && !dirtyCells.containsKey(map.key));
+    }
+
+    // Main thread: copies the loaded chunks holding the given cells so the build never
+    // touches the world.
+    private ChunkSnapshot[] snapshotRegion(World world, RegionKey key, long cells) {
+      int baseChunkX = key.regionX * REGION_CHUNK_SIZE;
+      int baseChunkZ = key.regionZ * REGION_CHUNK_SIZE;
+      ChunkSnapshot[] chunks = new ChunkSnapshot[REGION_CHUNK_SIZE * REGION_CHUNK_SIZE];
+      boolean any = false;
+      for (int cell = 0; cell < GRID_SIZE * GRID_SIZE; cell++) {
+        if ((cells & (1L << cell)) == 0) {
+          continue;
+        }
+        int chunkIndex = chunkIndex(cell);
+        if (chunks[chunkIndex] != null) {
+          continue;
+        }
+        int chunkX = baseChunkX + chunkIndex % REGION_CHUNK_SIZE;
+        int chunkZ = baseChunkZ + chunkIndex / REGION_CHUNK_SIZE;
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+          continue;
+        }
+        chunks[chunkIndex] = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, false, false);
+        any = true;
+      }
+      return any ? chunks : null;
     }
 
+    private int chunkIndex(int cell) {
+      int localX = (cell % GRID_SIZE) * SAMPLE_SPACING;
+      int localZ = (cell / GRID_SIZE) * SAMPLE_SPACING;
+      return (localX >> 4) + (localZ >> 4) * REGION_CHUNK_SIZE;
+    }
+
+    // Resamples only the given cells on top of base (a fresh map when base is null), then
+    // rescores those cells and their neighbours, whose cliff check reads the new heights.
     private RegionHazardMap buildRegionHazardMap(
-        World world,
+        ChunkSnapshot[] chunks,
         RegionKey key,
+        long cells,
+        RegionHazardMap base,
+        int minY,
+        int maxY,
+        long terrainStamp,
         int currentTick) {
-      int originX = key.regionX * REGION_BLOCK_SIZE;
-      int originZ = key.regionZ * REGION_BLOCK_SIZE;
-      int[][] heights = new int[GRID_SIZE][GRID_SIZE];
-      boolean[][] water = new boolean[GRID_SIZE][GRID_SIZE];
-      boolean[][] cave = new boolean[GRID_SIZE][GRID_SIZE];
-      for (int gx = 0; gx < GRID_SIZE; gx++) {
-        for (int gz = 0; gz < GRID_SIZE; gz++) {
-          int sampleX = originX + gx * SAMPLE_SPACING + SAMPLE_SPACING / 2;
-          int sampleZ = originZ + gz * SAMPLE_SPACING + SAMPLE_SPACING / 2;
-          int surfaceY = world.getHighestBlockYAt(
-              sampleX,
-              sampleZ,
-              HeightMap.MOTION_BLOCKING_NO_LEAVES);
-          heights[gx][gz] = surfaceY;
-          var surfaceBlock = world.getBlockAt(sampleX, surfaceY, sampleZ);
-          boolean isWater = surfaceBlock.getType() == Material.WATER;
-          if (!isWater) {
-            var below = world.getHighestBlockAt(sampleX, sampleZ, HeightMap.OCEAN_FLOOR);
-            var above = below.getRelative(org.bukkit.block.BlockFace.UP);
-            isWater = above.getType() == Material.WATER;
-          }
-          water[gx][gz] = isWater;
-          cave[gx][gz] = isCaveSample(world, sampleX, surfaceY, sampleZ);
+      int cellCount = GRID_SIZE * GRID_SIZE;
+      int[] heights = base == null ? new int[cellCount] : base.heights.clone();
+      byte[] flags = base == null ? new byte[cellCount] : base.flags.clone();
+      byte[] scores = base == null ? new byte[cellCount] : base.scores.clone();
+      long rescore = 0L;
+      for (int cell = 0; cell < cellCount; cell++) {
+        if ((cells & (1L << cell)) == 0) {
+          continue;
+        }
+        int gx = cell % GRID_SIZE;
+        int gz = cell / GRID_SIZE;
+        rescore |= 1L << cell;
+        if (gx > 0) {
+          rescore |= 1L << (cell - 1);
+        }
+        if (gx + 1 < GRID_SIZE) {
+          rescore |= 1L << (cell + 1);
+        }
+        if (gz > 0) {
+          rescore |= 1L << (cell - GRID_SIZE);
         }
+        if (gz + 1 < GRID_SIZE) {
+          rescore |= 1L << (cell + GRID_SIZE);
+        }
+        ChunkSnapshot chunk = chunks[chunkIndex(cell)];
+        if (chunk == null) {
+          heights[cell] = Integer.MIN_VALUE;
+          flags[cell] = 0;
+          continue;
+        }
+        int x = (gx * SAMPLE_SPACING + SAMPLE_SPACING / 2) & 15;
+        int z = (gz * SAMPLE_SPACING + SAMPLE_SPACING / 2) & 15;
+        int highestY = chunk.getHighestBlockYAt(x, z);
+        if (highestY <= minY) {
+          heights[cell] = minY;
+          flags[cell] = 0;
+          continue;
+        }
+        int surfaceY = surfaceBelowLeaves(chunk, x, Math.min(highestY - 1, maxY), z, minY);
+        heights[cell] = surfaceY;
+        int cellFlags = 0;
+        if (isWaterSample(chunk, x, surfaceY, z, minY)) {
+          cellFlags |= RegionHazardMap.WATER;
+        }
+        if (isCaveSample(chunk, x, surfaceY, z, minY)) {
+          cellFlags |= RegionHazardMap.CAVE;
+        }
+        flags[cell] = (byte) cellFlags;
       }
-      byte[] scores = new byte[GRID_SIZE * GRID_SIZE];
-      for (int gx = 0; gx < GRID_SIZE; gx++) {
-        for (int gz = 0; gz < GRID_SIZE; gz++) {
-          int maxDelta = 0;
-          int base = heights[gx][gz];
-          if (gx > 0) {
-            maxDelta = Math.max(maxDelta, Math.abs(base - heights[gx - 1][gz]));
-          }
-          if (gx + 1 < GRID_SIZE) {
-            maxDelta = Math.max(maxDelta, Math.abs(base - heights[gx + 1][gz]));
-          }
-          if (gz > 0) {
-            maxDelta = Math.max(maxDelta, Math.abs(base - heights[gx][gz - 1]));
-          }
-          if (gz + 1 < GRID_SIZE) {
-            maxDelta = Math.max(maxDelta, Math.abs(base - heights[gx][gz + 1]));
-          }
-          boolean cliff = maxDelta >= CLIFF_HEIGHT_DELTA;
-          int score = 0;
-          if (water[gx][gz]) {
-            score += MUST_AVOID_SCORE;
-          }
-          if (cliff) {
-            score += MUST_AVOID_SCORE;
-          }
-          if (cave[gx][gz]) {
-            score += CAVE_SCORE;
-          }
-          scores[gx + gz * GRID_SIZE] = (byte) Math.min(127, score);
+      for (int cell = 0; cell < cellCount; cell++) {
+        if ((rescore & (1L << cell)) == 0) {
+          continue;
+        }
+        int height = heights[cell];
+        if (height == Integer.MIN_VALUE) {
+          scores[cell] = 0;
+          continue;
+        }
+        int gx = cell % GRID_SIZE;
+        int gz = cell / GRID_SIZE;
+        int maxDelta = 0;
+        if (gx > 0) {
+          maxDelta = Math.max(maxDelta, heightDelta(height, heights[cell - 1]));
+        }
+        if (gx + 1 < GRID_SIZE) {
+          maxDelta = Math.max(maxDelta, heightDelta(height, heights[cell + 1]));
+        }
+        if (gz > 0) {
+          maxDelta = Math.max(maxDelta, heightDelta(height, heights[cell - GRID_SIZE]));
+        }
+        if (gz + 1 < GRID_SIZE) {
+          maxDelta = Math.max(maxDelta, heightDelta(height, heights[cell + GRID_SIZE]));
+        }
+        boolean cliff = maxDelta >= CLIFF_HEIGHT_DELTA;
+        int score = 0;
+        if ((flags[cell] & RegionHazardMap.WATER) != 0) {
+          score += MUST_AVOID_SCORE;
+        }
+        if (cliff) {
+          score += MUST_AVOID_SCORE;
         }
+        if ((flags[cell] & RegionHazardMap.CAVE) != 0) {
+          score += CAVE_SCORE;
+        }
+        scores[cell] = (byte) Math.min(127, score);
       }
       return new RegionHazardMap(
           key,
-          originX,
-          originZ,
+          key.regionX * REGION_BLOCK_SIZE,
+          key.regionZ * REGION_BLOCK_SIZE,
           SAMPLE_SPACING,
+          heights,
+          flags,
           scores,
-          currentTick);
+          terrainStamp,
+          base == null ? currentTick : base.lastUpdatedTick);
+    }
+
+    private int heightDelta(int base, int neighbour) {
+      return neighbour == Integer.MIN_VALUE ? 0 : Math.abs(base - neighbour);
+    }
+
+    // The snapshot heightmap counts leaves, so step down through any canopy to the ground.
+    private int surfaceBelowLeaves(ChunkSnapshot chunk, int x, int topY, int z, int minY) {
+      if (topY <= minY || !Tag.LEAVES.isTagged(chunk.getBlockType(x, topY, z))) {
+        return topY;
+      }
+      int y = topY - 1;
+      while (y > minY) {
+        Material type = chunk.getBlockType(x, y, z);
+        if (!Tag.LEAVES.isTagged(type)
+            && (type.isSolid() || type == Material.WATER || type == Material.LAVA)) {
+          break;
+        }
+        y--;
+      }
+      return y;
+    }
+
+    private boolean isWaterSample(ChunkSnapshot chunk, int x, int surfaceY, int z, int worldMinY) {
+      int bottomY = Math.max(surfaceY - WATER_PROBE_DEPTH + 1, worldMinY);
+      for (int y = surfaceY; y >= bottomY; y--) {
+        Material type = chunk.getBlockType(x, y, z);
+        if (type == Material.WATER) {
+          return true;
+        }
+        if (type.isSolid()) {
+          return false;
+        }
+      }
+      return false;
     }
 
-    private boolean isCaveSample(World world, int x, int surfaceY, int z) {
+    private boolean isCaveSample(ChunkSnapshot chunk, int x, int surfaceY, int z, int worldMinY) {
       int minY = surfaceY - CAVE_SAMPLE_DEPTH_MIN;
       int maxY = surfaceY - CAVE_SAMPLE_DEPTH_MAX;
-      if (minY <= 0 || maxY <= 0) {
+      if (minY <= 0 || maxY <= 0 || maxY < worldMinY) {
         return false;
       }
       for (int y = minY; y >= maxY; y -= 4) {
-        var block = world.getBlockAt(x, y, z);
-        if (block.getType() != Material.AIR) {
+        if (chunk.getBlockType(x, y, z) != Material.AIR) {
           continue;
         }
-        var above = block.getRelative(org.bukkit.block.BlockFace.UP);
-        if (above.getType().isSolid()) {
+        if (chunk.getBlockType(x, y + 1, z).isSolid()) {
           return true;
         }
       }
@@ -2237,12 +3757,199 @@ public final class TrophicHerds extends JavaPlugin {
     }
   }
 
+  // Per-world file of fixed-size hazard records, one per region, in an open-addressed slot
+  // table. The atlas is a cache: a record that finds no free slot overwrites its home slot.
+  private final class HazardAtlas {
+    private static final int MAGIC = 0x54484841;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SLOTS = 1 << 14;
+    private static final int PROBE_LIMIT = 8;
+    private static final int HEADER_BYTES = 16;
+    private static final int CELLS = HazardManager.GRID_SIZE * HazardManager.GRID_SIZE;
+    private static final int HEIGHTS_OFFSET = 24;
+    private static final int FLAGS_OFFSET = HEIGHTS_OFFSET + CELLS * 2;
+    private static final int SCORES_OFFSET = FLAGS_OFFSET + CELLS;
+    private static final int RECORD_BYTES = SCORES_OFFSET + CELLS;
+
+    private final Map<UUID, java.nio.MappedByteBuffer> files = new HashMap<>();
+    private final java.util.Set<UUID> failedWorlds = new java.util.HashSet<>();
+    private boolean closed;
+
+    private synchronized RegionHazardMap load(RegionKey key, long gameTime, int currentTick) {
+      java.nio.MappedByteBuffer file = open(key.worldId);
+      if (file == null) {
+        return null;
+      }
+      int offset = findSlot(file, key, false);
+      if (offset < 0) {
+        return null;
+      }
+      long terrainStamp = file.getLong(offset + 16);
+      int[] heights = new int[CELLS];
+      byte[] flags = new byte[CELLS];
+      byte[] scores = new byte[CELLS];
+      for (int cell = 0; cell < CELLS; cell++) {
+        short height = file.getShort(offset + HEIGHTS_OFFSET + cell * 2);
+        heights[cell] = height == Short.MIN_VALUE ? Integer.MIN_VALUE : height;
+        flags[cell] = file.get(offset + FLAGS_OFFSET + cell);
+        scores[cell] = file.get(offset + SCORES_OFFSET + cell);
+      }
+      long age = gameTime - terrainStamp;
+      if (terrainStamp == Long.MIN_VALUE
+          || age < 0
+          || age > HazardManager.REGION_SAFETY_NET_TICKS) {
+        age = HazardManager.REGION_SAFETY_NET_TICKS + 1;
+      }
+      RegionHazardMap map = new RegionHazardMap(
+          key,
+          key.regionX * HazardManager.REGION_BLOCK_SIZE,
+          key.regionZ * HazardManager.REGION_BLOCK_SIZE,
+          HazardManager.SAMPLE_SPACING,
+          heights,
+          flags,
+          scores,
+          terrainStamp,
+          currentTick - (int) age);
+      map.lastAccessTick = currentTick;
+      return map;
+    }
+
+    private synchronized void store(RegionHazardMap map) {
+      java.nio.MappedByteBuffer file = open(map.key.worldId);
+      if (file == null) {
+        return;
+      }
+      int offset = findSlot(file, map.key, true);
+      file.putInt(offset + 4, map.key.regionX);
+      file.putInt(offset + 8, map.key.regionZ);
+      file.putLong(offset + 16, map.terrainStamp);
+      for (int cell = 0; cell < CELLS; cell++) {
+        int height = map.heights[cell];
+        short stored = height == Integer.MIN_VALUE ? Short.MIN_VALUE : (short) height;
+        file.putShort(offset + HEIGHTS_OFFSET + cell * 2, stored);
+        file.put(offset + FLAGS_OFFSET + cell, map.flags[cell]);
+        file.put(offset + SCORES_OFFSET + cell, map.scores[cell]);
+      }
+      file.putInt(offset, 1);
+    }
+
+    // Keeps the slot so later probes still resolve, but makes the next load come back stale.
+    private synchronized void invalidate(RegionKey key) {
+      java.nio.MappedByteBuffer file = open(key.worldId);
+      if (file == null) {
+        return;
+      }
+      int offset = findSlot(file, key, false);
+      if (offset >= 0) {
+        file.putLong(offset + 16, Long.MIN_VALUE);
+      }
+    }
+
+    private int findSlot(java.nio.MappedByteBuffer file, RegionKey key, boolean claim) {
+      int hash = key.regionX * 0x9E3779B1 ^ key.regionZ * 0x85EBCA77;
+      int home = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+      for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+        int offset = HEADER_BYTES + ((home + probe) & (SLOTS - 1)) * RECORD_BYTES;
+        if (file.getInt(offset) == 0) {
+          return claim ? offset : -1;
+        }
+        if (file.getInt(offset + 4) == key.regionX && file.getInt(offset + 8) == key.regionZ) {
+          return offset;
+        }
+      }
+      return claim ? HEADER_BYTES + home * RECORD_BYTES : -1;
+    }
+
+    private java.nio.MappedByteBuffer open(UUID worldId) {
+      java.nio.MappedByteBuffer file = files.get(worldId);
+      if (file != null || closed || failedWorlds.contains(worldId)) {
+        return file;
+      }
+      java.io.File folder = new java.io.File(getDataFolder(), "hazards");
+      java.io.File path = new java.io.File(folder, worldId + ".dat");
+      try {
+        folder.mkdirs();
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+            path.toPath(),
+            java.nio.file.StandardOpenOption.CREATE,
+            java.nio.file.StandardOpenOption.READ,
+            java.nio.file.StandardOpenOption.WRITE)) {
+          file = channel.map(
+              java.nio.channels.FileChannel.MapMode.READ_WRITE,
+              0,
+              HEADER_BYTES + (long) SLOTS * RECORD_BYTES);
+        }
+      } catch (java.io.IOException ex) {
+        failedWorlds.add(worldId);
+        getLogger().log(
+            java.util.logging.Level.WARNING,
+            "TrophicHerds could not open hazard atlas " + path,
+            ex);
+        return null;
+      }
+      if (file.getInt(0) != MAGIC
+          || file.getInt(4) != FORMAT_VERSION
+          || file.getInt(8) != SLOTS
+          || file.getInt(12) != RECORD_BYTES) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+          file.putInt(HEADER_BYTES + slot * RECORD_BYTES, 0);
+        }
+        file.putInt(0, MAGIC);
+        file.putInt(4, FORMAT_VERSION);
+        file.putInt(8, SLOTS);
+        file.putInt(12, RECORD_BYTES);
+      }
+      files.put(worldId, file);
+      return file;
+    }
+
+    private synchronized void close(UUID worldId) {
+      java.nio.MappedByteBuffer file = files.remove(worldId);
+      if (file != null) {
+        file.force();
+      }
+    }
+
+    private synchronized void closeAll() {
+      closed = true;
+      for (java.nio.MappedByteBuffer file : files.values()) {
+        file.force();
+      }
+      files.clear();
+    }
+  }
+
+  private static final class LoadedRegion {
+    private final RegionKey key;
+    private int loadedChunks;
+    private int dueTick;
+
+    private LoadedRegion(RegionKey key) {
+      this.key = key;
+    }
+  }
+
+  private static final class RegionDue {
+    private final LoadedRegion region;
+    private final int dueTick;
+
+    private RegionDue(LoadedRegion region, int dueTick) {
+      this.region = region;
+      this.dueTick = dueTick;
+    }
+  }
+
   private static final class RegionHazardMap {
+    private static final int WATER = 1;
+    private static final int CAVE = 2;
     private final RegionKey key;
     private final int originX;
     private final int originZ;
     private final int spacing;
+    private final int[] heights;
+    private final byte[] flags;
     private final byte[] scores;
+    private final long terrainStamp;
     private int lastUpdatedTick;
     private int lastAccessTick;
 
@@ -2251,13 +3958,19 @@ public final class TrophicHerds extends JavaPlugin {
         int originX,
         int originZ,
         int spacing,
+        int[] heights,
+        byte[] flags,
         byte[] scores,
+        long terrainStamp,
         int currentTick) {
       this.key = key;
       this.originX = originX;
       this.originZ = originZ;
       this.spacing = spacing;
+      this.heights = heights;
+      this.flags = flags;
       this.scores = scores;
+      this.terrainStamp = terrainStamp;
       this.lastUpdatedTick = currentTick;
       this.lastAccessTick = currentTick;
     }
@@ -2316,65 +4029,35 @@ public final class TrophicHerds extends JavaPlugin {
     }
   }
 
-  private static final class PredatorChunkCache {
-    private final List<Entity> entities;
-    private final int lastScanTick;
-
-    private PredatorChunkCache(List<Entity> entities, int lastScanTick) {
-      this.entities = entities;
-      this.lastScanTick = lastScanTick;
+  private final class PredatorListener implements Listener {
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+      threatField.onPlayerMove(event.getPlayer(), event.getTo());
     }
-  }
 
-  private static final class PredatorChunkKey {
-    private final UUID worldId;
-    private final int chunkX;
-    private final int chunkZ;
-    private final int predatorSignature;
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+      threatField.onPlayerMove(event.getPlayer(), event.getTo());
+    }
 
-    private PredatorChunkKey(UUID worldId, int chunkX, int chunkZ, int predatorSignature) {
-      this.worldId = worldId;
-      this.chunkX = chunkX;
-      this.chunkZ = chunkZ;
-      this.predatorSignature = predatorSignature;
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+      threatField.onPlayerMove(event.getPlayer(), event.getRespawnLocation());
     }
 
-    @Override
-    public boolean equals(Object other) {
-      if (this == other) {
-        return true;
-      }
-      if (!(other instanceof PredatorChunkKey that)) {
-        return false;
-      }
-      return chunkX == that.chunkX
-          && chunkZ == that.chunkZ
-          && predatorSignature == that.predatorSignature
-          && worldId.equals(that.worldId);
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+      threatField.track(event.getPlayer());
     }
 
-    @Override
-    public int hashCode() {
-      int result = worldId.hashCode();
-      result = 31 * result + chunkX;
-      result = 31 * result + chunkZ;
-      result = 31 * result + predatorSignature;
-      return result;
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+      threatField.untrack(event.getPlayer());
     }
-  }
 
-  private final class PredatorListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onPlayerToggleSprint(PlayerToggleSprintEvent event) {
-      if (event == null) {
-        return;
-      }
-      Player player = event.getPlayer();
-      if (player == null) {
-        return;
-      }
-      var chunk = player.getLocation().getChunk();
-      herdManager.invalidatePredatorChunk(player.getWorld(), chunk.getX(), chunk.getZ());
+    public void onPlayerGameModeChange(PlayerGameModeChangeEvent event) {
+      threatField.update(event.getPlayer(), event.getNewGameMode() == GameMode.SURVIVAL);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
@@ -2403,23 +4086,15 @@ public final class TrophicHerds extends JavaPlugin {
         return;
       }
       Entity predator = event.getEntity();
-      if (predator == null || !predator.isValid()) {
-        return;
-      }
-      List<MobTypeConfig<? extends Mob>> preyConfigs =
-          settings.predatorToPrey.get(predator.getType());
-      if (preyConfigs == null) {
+      if (predator == null) {
         return;
       }
-      MobTypeConfig<? extends Mob> config = findPreyConfig(preyConfigs, prey.getType());
-      if (config == null) {
+      MobTypeConfig<? extends Mob> config =
+          settings.preyConfig(predator.getType(), prey.getType());
+      if (config == null || !predator.isValid()) {
         return;
       }
-      herdManager.triggerImmediateFlee(
-          prey,
-          predator.getLocation(),
-          config.settings,
-          Bukkit.getCurrentTick());
+      herdManager.queueImmediateFlee(prey, predator, config, Bukkit.getCurrentTick());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -2432,23 +4107,15 @@ public final class TrophicHerds extends JavaPlugin {
         return;
       }
       Entity predator = event.getEntity();
-      if (predator == null || !predator.isValid()) {
+      if (predator == null) {
         return;
       }
-      List<MobTypeConfig<? extends Mob>> preyConfigs =
-          settings.predatorToPrey.get(predator.getType());
-      if (preyConfigs == null) {
+      MobTypeConfig<? extends Mob> config =
+          settings.preyConfig(predator.getType(), prey.getType());
+      if (config == null || !predator.isValid()) {
         return;
       }
-      MobTypeConfig<? extends Mob> config = findPreyConfig(preyConfigs, prey.getType());
-      if (config == null) {
-        return;
-      }
-      herdManager.triggerImmediateFlee(
-          prey,
-          predator.getLocation(),
-          config.settings,
-          Bukkit.getCurrentTick());
+      herdManager.queueImmediateFlee(prey, predator, config, Bukkit.getCurrentTick());
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
@@ -2463,17 +4130,138 @@ public final class TrophicHerds extends JavaPlugin {
       event.getDrops().clear();
       event.setDroppedExp(0);
     }
+  }
+
+  private final class HerdRegistryListener implements Listener {
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityAddToWorld(EntityAddToWorldEvent event) {
+      herdRegistry.track(event.getEntity());
+      threatField.track(event.getEntity());
+    }
 
-    private MobTypeConfig<? extends Mob> findPreyConfig(
-        List<MobTypeConfig<? extends Mob>> preyConfigs,
-        EntityType preyType) {
-      for (MobTypeConfig<? extends Mob> config : preyConfigs) {
-        if (config.entityType == preyType) {
-          return config;
-        }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemoveFromWorld(EntityRemoveFromWorldEvent event) {
+      herdRegistry.untrack(event.getEntity());
+      herdManager.forgetHerdMember(event.getEntity());
+      threatField.untrack(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+      for (Entity entity : event.getEntities()) {
+        herdRegistry.track(entity);
+        threatField.track(entity);
       }
-      return null;
     }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+      for (Entity entity : event.getEntities()) {
+        herdRegistry.untrack(entity);
+        herdManager.forgetHerdMember(entity);
+        threatField.untrack(entity);
+      }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+      Chunk chunk = event.getChunk();
+      hazardManager.trackChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+      Chunk chunk = event.getChunk();
+      biomeCache.evictChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+      hazardManager.untrackChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+      herdRegistry.forgetWorld(event.getWorld());
+      biomeCache.forgetWorld(event.getWorld());
+      threatField.forgetWorld(event.getWorld());
+      hazardManager.forgetWorld(event.getWorld());
+    }
+  }
+
+  private final class HazardListener implements Listener {
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+      hazardManager.markBlockChanged(event.getBlockPlaced());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+      hazardManager.markBlockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+      hazardManager.markBlockChanged(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+      hazardManager.markBlockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+      hazardManager.markBlockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+      hazardManager.markBlockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event) {
+      hazardManager.markBlockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+      for (BlockState state : event.getBlocks()) {
+        hazardManager.markBlockChanged(state.getBlock());
+      }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+      for (Block block : event.blockList()) {
+        hazardManager.markBlockChanged(block);
+      }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+      for (Block block : event.blockList()) {
+        hazardManager.markBlockChanged(block);
+      }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+      markPushed(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+      markPushed(event.getBlocks(), event.getDirection());
+    }
+
+    private void markPushed(List<Block> blocks, BlockFace direction) {
+      for (Block block : blocks) {
+        hazardManager.markBlockChanged(block);
+        hazardManager.markBlockChanged(block.getRelative(direction));
+      }
+    }
+  }
+
+  private static long chunkKey(int chunkX, int chunkZ) {
+    return (((long) chunkX) << 32) ^ (chunkZ & 0xffffffffL);
   }
 
   private static String formatEntityType(EntityType type) {
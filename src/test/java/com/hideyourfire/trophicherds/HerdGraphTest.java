@@ -0,0 +1,265 @@
+package com.hideyourfire.trophicherds;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class HerdGraphTest {
+  private static final double AWARENESS = 12.0;
+
+  @Test
+  void firstRefreshMatchesAllPairsClustering() {
+    for (long seed = 1; seed <= 50; seed++) {
+      Random random = new Random(seed);
+      int count = random.nextInt(400);
+      double spread = 40.0 + random.nextDouble() * 400.0;
+      Positions positions = Positions.random(random, count, spread);
+      HerdGraph<Integer> graph = new HerdGraph<>(AWARENESS, Function.identity());
+      assertEquals(
+          allPairsClusters(positions, AWARENESS),
+          normalize(refresh(graph, positions, 1000)),
+          "seed " + seed);
+    }
+  }
+
+  @Test
+  void linksAtExactlyTheAwarenessDistance() {
+    Positions positions = new Positions(4);
+    positions.set(0, 0.0, 64.0, 0.0);
+    positions.set(1, AWARENESS, 64.0, 0.0);
+    positions.set(2, AWARENESS * 2.0, 64.0, 0.0);
+    positions.set(3, AWARENESS * 3.0 + 0.01, 64.0, 0.0);
+    HerdGraph<Integer> graph = new HerdGraph<>(AWARENESS, Function.identity());
+    assertEquals(
+        List.of(List.of(0, 1, 2), List.of(3)),
+        normalize(refresh(graph, positions, 1000)));
+  }
+
+  @Test
+  void usesHeightWhenLinking() {
+    Positions positions = new Positions(2);
+    positions.set(0, 5.0, 64.0, 5.0);
+    positions.set(1, 5.0, 64.0 + AWARENESS + 1.0, 5.0);
+    HerdGraph<Integer> graph = new HerdGraph<>(AWARENESS, Function.identity());
+    assertEquals(
+        List.of(List.of(0), List.of(1)),
+        normalize(refresh(graph, positions, 1000)));
+  }
+
+  @Test
+  void incrementalRefreshMatchesFromScratchClustering() {
+    for (long seed = 1; seed <= 40; seed++) {
+      Random random = new Random(seed);
+      double spread = 60.0 + random.nextDouble() * 200.0;
+      Map<Integer, double[]> live = new LinkedHashMap<>();
+      int nextId = 0;
+      for (int i = random.nextInt(200); i > 0; i--) {
+        live.put(nextId++, randomPoint(random, spread));
+      }
+      HerdGraph<Integer> graph = new HerdGraph<>(AWARENESS, Function.identity());
+      for (int step = 0; step < 30; step++) {
+        List<Integer> ids = new ArrayList<>(live.keySet());
+        for (Integer id : ids) {
+          double roll = random.nextDouble();
+          if (roll < 0.08) {
+            live.remove(id);
+          } else if (roll < 0.2) {
+            live.put(id, randomPoint(random, spread));
+          } else if (roll < 0.5) {
+            double[] point = live.get(id);
+            point[0] += random.nextGaussian() * 3.0;
+            point[2] += random.nextGaussian() * 3.0;
+          }
+        }
+        for (int i = random.nextInt(12); i > 0; i--) {
+          live.put(nextId++, randomPoint(random, spread));
+        }
+        Positions positions = Positions.of(live);
+        HerdGraph<Integer> fresh = new HerdGraph<>(AWARENESS, Function.identity());
+        List<List<Integer>> expected = normalize(refresh(fresh, positions, 1000));
+        assertEquals(
+            expected,
+            normalize(refresh(graph, positions, 1000)),
+            "seed " + seed + " step " + step);
+        assertEquals(expected, allPairsClusters(positions, AWARENESS));
+      }
+    }
+  }
+
+  @Test
+  void splitsAndRelinksWhenTheBridgeLeavesAndReturns() {
+    Map<Integer, double[]> live = new LinkedHashMap<>();
+    live.put(0, new double[] {0.0, 64.0, 0.0});
+    live.put(1, new double[] {10.0, 64.0, 0.0});
+    live.put(2, new double[] {20.0, 64.0, 0.0});
+    HerdGraph<Integer> graph = new HerdGraph<>(AWARENESS, Function.identity());
+    assertEquals(List.of(List.of(0, 1, 2)), normalize(refresh(graph, Positions.of(live), 1000)));
+    double[] bridge = live.remove(1);
+    assertEquals(
+        List.of(List.of(0), List.of(2)),
+        normalize(refresh(graph, Positions.of(live), 1000)));
+    live.put(1, bridge);
+    assertEquals(List.of(List.of(0, 1, 2)), normalize(refresh(graph, Positions.of(live), 1000)));
+    live.get(1)[2] = 40.0;
+    assertEquals(
+        List.of(List.of(0), List.of(1), List.of(2)),
+        normalize(refresh(graph, Positions.of(live), 1000)));
+    live.get(1)[2] = 0.0;
+    assertEquals(List.of(List.of(0, 1, 2)), normalize(refresh(graph, Positions.of(live), 1000)));
+  }
+
+  @Test
+  void smallMovesWaitForTheFullRebuild() {
+    Map<Integer, double[]> live = new LinkedHashMap<>();
+    live.put(0, new double[] {0.0, 64.0, 0.0});
+    live.put(1, new double[] {AWARENESS, 64.0, 0.0});
+    HerdGraph<Integer> graph = new HerdGraph<>(AWARENESS, Function.identity());
+    Positions positions = Positions.of(live);
+    graph.refresh(positions.ids, positions.xs, positions.ys, positions.zs, 2, 4.0, 3);
+    live.get(1)[0] += 1.0;
+    positions = Positions.of(live);
+    assertEquals(
+        List.of(List.of(0, 1)),
+        normalize(idsOf(positions, graph.refresh(
+            positions.ids, positions.xs, positions.ys, positions.zs, 2, 4.0, 3))));
+    assertEquals(
+        List.of(List.of(0), List.of(1)),
+        normalize(idsOf(positions, graph.refresh(
+            positions.ids, positions.xs, positions.ys, positions.zs, 2, 4.0, 3))));
+  }
+
+  private static double[] randomPoint(Random random, double spread) {
+    return new double[] {
+        random.nextDouble() * spread - spread / 2.0,
+        60.0 + random.nextDouble() * 8.0,
+        random.nextDouble() * spread - spread / 2.0};
+  }
+
+  static List<List<Integer>> refresh(
+      HerdGraph<Integer> graph,
+      Positions positions,
+      int fullRebuildInterval) {
+    return idsOf(positions, graph.refresh(
+        positions.ids,
+        positions.xs,
+        positions.ys,
+        positions.zs,
+        positions.ids.size(),
+        0.0,
+        fullRebuildInterval));
+  }
+
+  static List<List<Integer>> idsOf(Positions positions, List<int[]> clusters) {
+    List<List<Integer>> ids = new ArrayList<>(clusters.size());
+    for (int[] cluster : clusters) {
+      List<Integer> members = new ArrayList<>(cluster.length);
+      for (int index : cluster) {
+        members.add(positions.ids.get(index));
+      }
+      ids.add(members);
+    }
+    return ids;
+  }
+
+  // The clustering HerdGraph replaced: breadth-first search comparing every pair of mobs.
+  static List<List<Integer>> allPairsClusters(Positions positions, double awareness) {
+    double distanceSq = awareness * awareness;
+    int count = positions.ids.size();
+    boolean[] assigned = new boolean[count];
+    List<List<Integer>> clusters = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (assigned[i]) {
+        continue;
+      }
+      List<Integer> members = new ArrayList<>();
+      Deque<Integer> queue = new ArrayDeque<>();
+      queue.add(i);
+      assigned[i] = true;
+      while (!queue.isEmpty()) {
+        int index = queue.removeFirst();
+        members.add(positions.ids.get(index));
+        for (int j = 0; j < count; j++) {
+          if (!assigned[j] && positions.distanceSq(index, j) <= distanceSq) {
+            assigned[j] = true;
+            queue.add(j);
+          }
+        }
+      }
+      clusters.add(members);
+    }
+    return normalize(clusters);
+  }
+
+  static List<List<Integer>> normalize(List<List<Integer>> clusters) {
+    List<List<Integer>> sorted = new ArrayList<>();
+    for (List<Integer> cluster : clusters) {
+      List<Integer> members = new ArrayList<>(cluster);
+      members.sort(Comparator.naturalOrder());
+      sorted.add(members);
+    }
+    sorted.sort(Comparator.comparing(members -> members.get(0)));
+    return sorted;
+  }
+
+  static final class Positions {
+    final List<Integer> ids = new ArrayList<>();
+    double[] xs;
+    double[] ys;
+    double[] zs;
+
+    Positions(int count) {
+      xs = new double[count];
+      ys = new double[count];
+      zs = new double[count];
+      for (int i = 0; i < count; i++) {
+        ids.add(i);
+      }
+    }
+
+    static Positions of(Map<Integer, double[]> live) {
+      Positions positions = new Positions(live.size());
+      positions.ids.clear();
+      int index = 0;
+      for (Map.Entry<Integer, double[]> entry : live.entrySet()) {
+        double[] point = entry.getValue();
+        positions.ids.add(entry.getKey());
+        positions.set(index++, point[0], point[1], point[2]);
+      }
+      return positions;
+    }
+
+    static Positions random(Random random, int count, double spread) {
+      Positions positions = new Positions(count);
+      for (int i = 0; i < count; i++) {
+        positions.set(
+            i,
+            random.nextDouble() * spread - spread / 2.0,
+            60.0 + random.nextDouble() * 16.0,
+            random.nextDouble() * spread - spread / 2.0);
+      }
+      return positions;
+    }
+
+    void set(int index, double x, double y, double z) {
+      xs[index] = x;
+      ys[index] = y;
+      zs[index] = z;
+    }
+
+    double distanceSq(int a, int b) {
+      double dx = xs[a] - xs[b];
+      double dy = ys[a] - ys[b];
+      double dz = zs[a] - zs[b];
+      return dx * dx + dy * dy + dz * dz;
+    }
+  }
+}